@@ -0,0 +1,142 @@
+package htmlflow.bench;
+
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlView;
+import htmlflow.HtmlWriter;
+import htmlflow.StaticHtml;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Views and models shared by the benchmarks.
+ */
+final class BenchViews {
+
+    static final int ROWS = 20;
+    static final int PARTIALS = 20;
+
+    private BenchViews() { }
+
+    static final class Row {
+        final String name;
+        final String symbol;
+        final double price;
+
+        Row(String name, String symbol, double price) {
+            this.name = name;
+            this.symbol = symbol;
+            this.price = price;
+        }
+    }
+
+    static List<Row> rows(int size) {
+        List<Row> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            rows.add(new Row("Stock " + i, "S" + i, i * 1.5));
+        return rows;
+    }
+
+    /**
+     * A page with a static head and body around a single dynamic table body.
+     */
+    static DynamicHtml<List<Row>> stocksView() {
+        return DynamicHtml.view(BenchViews::stocksTemplate);
+    }
+
+    static void stocksTemplate(DynamicHtml<List<Row>> view, List<Row> rows) {
+        view
+            .html()
+                .head()
+                    .title().text("Stock Prices").__()
+                    .link().attrRel("stylesheet").attrHref("/css/bootstrap.min.css").__()
+                .__()
+                .body()
+                    .h1().text("Stock Prices").__()
+                    .table()
+                        .thead()
+                            .tr()
+                                .th().text("#").__()
+                                .th().text("name").__()
+                                .th().text("symbol").__()
+                                .th().text("price").__()
+                            .__()
+                        .__()
+                        .tbody()
+                            .dynamic(tbody -> rows.forEach(row -> tbody
+                                .tr()
+                                    .td().text(row.symbol).__()
+                                    .td().text(row.name).__()
+                                    .td().text(String.valueOf(row.price)).__()
+                                .__()))
+                        .__()
+                    .__()
+                .__()
+            .__();
+    }
+
+    static StaticHtml staticView() {
+        return StaticHtml.view(view -> view
+            .html()
+                .head()
+                    .title().text("About").__()
+                .__()
+                .body()
+                    .div().attrClass("container")
+                        .h1().text("About us").__()
+                        .p().text("A static page rendered by HtmlFlow.").__()
+                    .__()
+                .__()
+            .__());
+    }
+
+    /**
+     * A page made of PARTIALS rows, each one rendered by addPartial().
+     */
+    static DynamicHtml<List<Row>> partialsView() {
+        DynamicHtml<Row> rowPartial = DynamicHtml.view((view, row) -> view
+            .div().attrClass("row")
+                .dynamic(div -> div.text(row.name).span().text(String.valueOf(row.price)).__())
+            .__());
+        return DynamicHtml.view((view, rows) -> view
+            .html()
+                .body()
+                    .div()
+                        .dynamic(div -> rows.forEach(row -> view.addPartial(rowPartial, row)))
+                    .__()
+                .__()
+            .__());
+    }
+
+    /**
+     * Returns a writer of the given view for the visitor kind, which
+     * is one of StringBuilder, PrintStream or OutputStream.
+     */
+    static <T> HtmlWriter<T> writer(HtmlView<T> view, String visitor) {
+        switch (visitor) {
+            case "StringBuilder": return view;
+            case "PrintStream": return view.setPrintStream(new PrintStream(new NullOutputStream()));
+            case "OutputStream": return view.setOutputStream(new NullOutputStream());
+            default: throw new IllegalArgumentException("Unknown visitor " + visitor);
+        }
+    }
+
+    /**
+     * Discards everything, so benchmarks measure rendering and not IO.
+     */
+    static final class NullOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
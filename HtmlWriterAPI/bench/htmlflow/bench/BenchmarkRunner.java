@@ -0,0 +1,38 @@
+package htmlflow.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks of this package with the GC profiler, thus reporting
+ * both ops/s and the bytes allocated per operation (gc.alloc.rate.norm).
+ * Any JMH command line option may be given in args, e.g. a regexp to
+ * select the benchmarks to run. Otherwise it runs all of them.
+ *
+ * The bench folder is the Eclipse project HtmlWriterAPI-bench, which depends
+ * on the HtmlWriterAPI project and on jmh-core 1.37 from M2_REPO, and runs
+ * the jmh-generator-annprocess processor of its factory path, which writes
+ * the META-INF/BenchmarkList that the Runner needs.
+ * Without Eclipse, with the classes of HtmlWriterAPI and HtmlApiFaster in CP
+ * and the jars of jmh-core, jopt-simple and commons-math3 in JMH:
+ * <pre>
+ * javac -cp CP:JMH -processorpath jmh-generator-annprocess-1.37.jar:JMH -d bin htmlflow/bench/*.java
+ * java -cp bin:CP:JMH htmlflow.bench.BenchmarkRunner RenderBenchmark
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class);
+        if (args.length == 0)
+            options.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+        new Runner(options.build()).run();
+    }
+}
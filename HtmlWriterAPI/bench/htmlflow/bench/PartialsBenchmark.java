@@ -0,0 +1,42 @@
+package htmlflow.bench;
+
+import htmlflow.DynamicHtml;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a page made of many partial views added with addPartial().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartialsBenchmark {
+
+    private List<BenchViews.Row> rows;
+    private DynamicHtml<List<BenchViews.Row>> view;
+
+    @Setup
+    public void setup() {
+        rows = BenchViews.rows(BenchViews.PARTIALS);
+        view = BenchViews.partialsView();
+    }
+
+    @Benchmark
+    public String partialsRender() {
+        return view.render(rows);
+    }
+}
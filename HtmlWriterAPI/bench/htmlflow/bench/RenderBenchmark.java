@@ -0,0 +1,89 @@
+package htmlflow.bench;
+
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the first (uncached) render of a view, which also builds its
+ * cache of static blocks, against the steady-state render from cache,
+ * for each kind of visitor.
+ * Streaming visitors return null from render(), thus for those the
+ * benchmarks measure the write to a stream that discards the output.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"StringBuilder", "PrintStream", "OutputStream"})
+    public String visitor;
+
+    private List<BenchViews.Row> rows;
+    private HtmlWriter<List<BenchViews.Row>> dynamicWriter;
+    private HtmlWriter<Object> staticWriter;
+    private DynamicHtml<List<BenchViews.Row>> sinkView;
+    private StringBuilder sink;
+
+    @Setup
+    public void setup() {
+        rows = BenchViews.rows(BenchViews.ROWS);
+        dynamicWriter = BenchViews.writer(BenchViews.stocksView(), visitor);
+        dynamicWriter.write(rows);
+        staticWriter = BenchViews.writer(BenchViews.staticView(), visitor);
+        staticWriter.write();
+        sinkView = BenchViews.stocksView();
+        sinkView.render(rows);
+        sink = new StringBuilder();
+    }
+
+    @Benchmark
+    public void dynamicFirstRender(Blackhole bh) {
+        HtmlWriter<List<BenchViews.Row>> writer = BenchViews.writer(BenchViews.stocksView(), visitor);
+        bh.consume(writer.render(rows));
+    }
+
+    @Benchmark
+    public void dynamicCachedRender(Blackhole bh) {
+        bh.consume(dynamicWriter.render(rows));
+    }
+
+    /**
+     * Steady-state render into a reused StringBuilder, which does not depend
+     * on the visitor parameter.
+     */
+    @Benchmark
+    public void dynamicCachedRenderToSink(Blackhole bh) {
+        sink.setLength(0);
+        sinkView.render(rows, sink);
+        bh.consume(sink);
+    }
+
+    @Benchmark
+    public void staticFirstRender(Blackhole bh) {
+        HtmlWriter<Object> writer = BenchViews.writer(BenchViews.staticView(), visitor);
+        bh.consume(writer.render());
+    }
+
+    @Benchmark
+    public void staticCachedRender(Blackhole bh) {
+        bh.consume(staticWriter.render());
+    }
+}
@@ -0,0 +1,44 @@
+package htmlflow.bench;
+
+import htmlflow.HtmlView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the same threadSafe() view concurrently from several threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ThreadSafeBenchmark {
+
+    private List<BenchViews.Row> rows;
+    private HtmlView<List<BenchViews.Row>> view;
+
+    @Setup
+    public void setup() {
+        rows = BenchViews.rows(BenchViews.ROWS);
+        view = BenchViews.stocksView().threadSafe();
+    }
+
+    @Benchmark
+    public String threadSafeRender() {
+        return view.render(rows);
+    }
+}
@@ -0,0 +1,155 @@
+package htmlflow.codegen;
+
+import htmlflow.HtmlView;
+import htmlflow.StaticBlocks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A build-time generator of the static blocks of a view.
+ * It gets the view from a static method with no parameters, or from a
+ * static field, of a compiled class, fills its cache with a dry run and
+ * writes the source of a class that holds those static blocks as constants.
+ * At runtime, the preload() of the generated class fills the cache of the
+ * view with the same StaticBlocks of a snapshot file, but compiled into the
+ * application rather than read on startup.
+ * Thus, the first render writes no static HTML of its own, but it still runs
+ * the binder once to record the plan of the view, and later renders replay
+ * that plan through the visitor, as any other view.
+ *
+ * It runs after the compilation of the views, e.g. from the exec plugin of
+ * the build, with the arguments:
+ * {@code <view class> <static method or field> <generated class> <output dir>}.
+ * For example, {@code com.acme.Views stocks com.acme.StocksBlocks target/generated-sources}.
+ */
+public class ViewGenerator {
+
+    /**
+     * The max length of each string literal, which keeps the UTF-8 of the
+     * literal below the limit of 65535 bytes of the constant pool.
+     */
+    private static final int MAX_LITERAL = 16384;
+
+    public static void main(String[] args) throws ReflectiveOperationException, IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: ViewGenerator <view class> <static method or field> <generated class> <output dir>");
+            System.exit(1);
+        }
+        HtmlView<?> view = view(Class.forName(args[0]), args[1]);
+        Path file = generate(view, args[0] + "." + args[1], args[2], Paths.get(args[3]));
+        System.out.println("Generated " + file);
+    }
+
+    /**
+     * Writes the source of the class with the static blocks of view into
+     * the output dir, in the folders of its package.
+     *
+     * @return the path of the generated source file.
+     */
+    public static Path generate(HtmlView<?> view, String origin, String className, Path outputDir) throws IOException {
+        view.dryRun();
+        StaticBlocks blocks = view.staticBlocks();
+        int dot = className.lastIndexOf('.');
+        String packageName = dot < 0 ? null : className.substring(0, dot);
+        String simpleName = className.substring(dot + 1);
+        Path dir = packageName == null ? outputDir : outputDir.resolve(packageName.replace('.', '/'));
+        Files.createDirectories(dir);
+        Path file = dir.resolve(simpleName + ".java");
+        try (Writer out = Files.newBufferedWriter(file, UTF_8)) {
+            source(out, blocks, origin, packageName, simpleName);
+        }
+        return file;
+    }
+
+    static HtmlView<?> view(Class<?> klass, String member) throws ReflectiveOperationException {
+        for (Method m : klass.getDeclaredMethods()) {
+            if (m.getName().equals(member) && m.getParameterCount() == 0 && Modifier.isStatic(m.getModifiers())) {
+                m.setAccessible(true);
+                return (HtmlView<?>) m.invoke(null);
+            }
+        }
+        Field f = klass.getDeclaredField(member);
+        f.setAccessible(true);
+        return (HtmlView<?>) f.get(null);
+    }
+
+    private static void source(
+        Writer out,
+        StaticBlocks blocks,
+        String origin,
+        String packageName,
+        String simpleName) throws IOException
+    {
+        if (packageName != null)
+            out.write("package " + packageName + ";\n\n");
+        out.write("import htmlflow.HtmlView;\n");
+        out.write("import htmlflow.StaticBlocks;\n\n");
+        out.write("/**\n");
+        out.write(" * The static blocks of " + origin + ".\n");
+        out.write(" * Generated by htmlflow.codegen.ViewGenerator. Do not edit.\n");
+        out.write(" */\n");
+        out.write("public final class " + simpleName + " {\n\n");
+        out.write("    public static final StaticBlocks BLOCKS = new StaticBlocks(\n");
+        out.write("        new String[] {\n");
+        for (int i = 0; i < blocks.size(); i++) {
+            out.write("            join(");
+            literals(out, blocks.html(i));
+            out.write(i < blocks.size() - 1 ? "),\n" : ")\n");
+        }
+        out.write("        },\n");
+        out.write("        new int[] {");
+        for (int i = 0; i < blocks.size(); i++)
+            out.write((i > 0 ? ", " : "") + blocks.depth(i));
+        out.write("},\n");
+        out.write("        new boolean[] {");
+        for (int i = 0; i < blocks.size(); i++)
+            out.write((i > 0 ? ", " : "") + blocks.isClosed(i));
+        out.write("});\n\n");
+        out.write("    private " + simpleName + "() { }\n\n");
+        out.write("    /**\n");
+        out.write("     * Fills the cache of a new instance of the view with BLOCKS.\n");
+        out.write("     */\n");
+        out.write("    public static <V extends HtmlView<?>> V preload(V view) {\n");
+        out.write("        view.preload(BLOCKS);\n");
+        out.write("        return view;\n");
+        out.write("    }\n\n");
+        out.write("    private static String join(String... parts) {\n");
+        out.write("        return String.join(\"\", parts);\n");
+        out.write("    }\n");
+        out.write("}\n");
+    }
+
+    /**
+     * Writes html as a list of string literals of at most MAX_LITERAL chars.
+     */
+    private static void literals(Writer out, String html) throws IOException {
+        out.write('"');
+        for (int i = 0; i < html.length(); i++) {
+            if (i > 0 && i % MAX_LITERAL == 0)
+                out.write("\",\n                \"");
+            char c = html.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20 || c > 0x7e)
+                        out.write(String.format("\\u%04x", (int) c));
+                    else
+                        out.write(c);
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,46 @@
+package htmlflow;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput of a batch of renders, e.g. of
+ * {@link DynamicHtml#renderAll(java.util.stream.Stream, java.util.function.Function)}.
+ */
+public final class BatchReport {
+
+    private final long renders;
+    private final long nanos;
+
+    BatchReport(long renders, long nanos) {
+        this.renders = renders;
+        this.nanos = nanos;
+    }
+
+    /**
+     * The number of models rendered.
+     */
+    public long renders() {
+        return renders;
+    }
+
+    /**
+     * The wall-clock time of the whole batch.
+     */
+    public Duration elapsed() {
+        return Duration.ofNanos(nanos);
+    }
+
+    /**
+     * The number of renders per second of wall-clock time.
+     */
+    public double rendersPerSecond() {
+        return nanos == 0 ? 0 : renders * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d renders in %d ms (%.1f renders/s)",
+            renders, TimeUnit.NANOSECONDS.toMillis(nanos), rendersPerSecond());
+    }
+}
@@ -0,0 +1,134 @@
+package htmlflow;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The static blocks of a view, i.e. an array with the segments of HTML of
+ * all blocks and, when there is a block charset, a parallel array with those
+ * segments encoded, with primitive arrays of the first segment, the length
+ * and the depth of each block and a bitset of the begin tag state where each
+ * block ends, in place of an HtmlBlockInfo per block.
+ *
+ * The segments are interned in a BlockStore, so the segments with the same
+ * content are kept once for all views, while each view keeps its own layout.
+ * Thus, the HTML of a view is not contiguous, but spread over the segments
+ * it shares with other views, and a block of several segments is joined on
+ * each call of html() or bytes().
+ *
+ * Instances are immutable, but for the deflated blocks of HtmlVisitorCompressed.
+ */
+final class BlockLayout {
+
+    /**
+     * The segments of HTML of all blocks, interned in a BlockStore.
+     */
+    final String[] segments;
+    /**
+     * The segments encoded in the block charset, or null if there is none.
+     */
+    final byte[][] segmentBytes;
+    /**
+     * The index of the first segment of each block, plus the number of segments.
+     */
+    private final int[] firstSegments;
+    /**
+     * The number of bytes, or chars if there is no block charset, of each block.
+     */
+    private final int[] lengths;
+    private final int[] depths;
+    private final long[] closed;
+    /**
+     * The bytes of each block deflated by HtmlVisitorCompressed on first use, or null.
+     */
+    final AtomicReferenceArray<byte[]> deflated;
+
+    BlockLayout(List<HtmlVisitorCache.HtmlBlockInfo> blocks, Charset charset, BlockStore store) {
+        int size = blocks.size();
+        int count = 0;
+        for (HtmlVisitorCache.HtmlBlockInfo block : blocks)
+            count += block.segments.length;
+        this.segments = new String[count];
+        this.segmentBytes = charset == null ? null : new byte[count][];
+        this.firstSegments = new int[size + 1];
+        this.lengths = new int[size];
+        this.depths = new int[size];
+        this.closed = new long[(size + 63) >>> 6];
+        int s = 0;
+        for (int i = 0; i < size; i++) {
+            HtmlVisitorCache.HtmlBlockInfo block = blocks.get(i);
+            firstSegments[i] = s;
+            for (String html : block.segments) {
+                segments[s] = store.intern(html);
+                if (charset == null) {
+                    lengths[i] += html.length();
+                } else {
+                    segmentBytes[s] = store.encode(segments[s], charset);
+                    lengths[i] += segmentBytes[s].length;
+                }
+                s++;
+            }
+            depths[i] = block.currentDepth;
+            if (block.isClosed)
+                closed[i >>> 6] |= 1L << i;
+        }
+        firstSegments[size] = s;
+        this.deflated = charset == null ? null : new AtomicReferenceArray<>(size);
+    }
+
+    int size() {
+        return depths.length;
+    }
+
+    /**
+     * The index of the first segment of a block, or the number of segments
+     * for the index size().
+     */
+    int firstSegment(int index) {
+        return firstSegments[index];
+    }
+
+    String html(int index) {
+        int first = firstSegments[index];
+        int end = firstSegments[index + 1];
+        if (end - first == 1)
+            return segments[first];
+        StringBuilder html = new StringBuilder();
+        for (int s = first; s < end; s++)
+            html.append(segments[s]);
+        return html.toString();
+    }
+
+    /**
+     * The encoded bytes of a block in a new array, or the bytes of its single segment.
+     */
+    byte[] bytes(int index) {
+        int first = firstSegments[index];
+        int end = firstSegments[index + 1];
+        if (end - first == 1)
+            return segmentBytes[first];
+        byte[] bytes = new byte[lengths[index]];
+        int offset = 0;
+        for (int s = first; s < end; s++) {
+            System.arraycopy(segmentBytes[s], 0, bytes, offset, segmentBytes[s].length);
+            offset += segmentBytes[s].length;
+        }
+        return bytes;
+    }
+
+    int depth(int index) {
+        return depths[index];
+    }
+
+    boolean isClosed(int index) {
+        return (closed[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * The number of bytes, or chars if there are no bytes, of a block.
+     */
+    int length(int index) {
+        return lengths[index];
+    }
+}
@@ -0,0 +1,124 @@
+package htmlflow;
+
+import java.lang.ref.WeakReference;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A content-addressed store of the segments of static blocks of all views,
+ * which keeps a single instance of the segments with the same content, and
+ * of their encoded bytes, e.g. the doctype, head, nav bar or footer common
+ * to different pages, or the whole blocks of several instances of the same
+ * template. Blocks are split into segments at the elements up to
+ * HtmlVisitorCache.SEGMENT_DEPTH, while preloaded blocks are single segments.
+ * The segments of a view are interned once, when its BlockLayout is built,
+ * by their hash and content, thus renders never touch this store.
+ * Each view still keeps its own layout, which only refers to the segments.
+ *
+ * Segments are weakly referenced, so they are released along with the last
+ * view holding them.
+ */
+public final class BlockStore {
+
+    private static final BlockStore SHARED = new BlockStore();
+
+    private final Map<String, Segment> segments = new WeakHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    private BlockStore() {
+    }
+
+    /**
+     * The store shared by the caches of all views.
+     */
+    public static BlockStore shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the stored instance of the given segment, storing it if
+     * it is not there yet.
+     */
+    String intern(String html) {
+        synchronized (segments) {
+            Segment segment = segments.get(html);
+            String stored = segment == null ? null : segment.html.get();
+            if (stored == null) {
+                segments.put(html, new Segment(html));
+                return html;
+            }
+            if (stored != html) {
+                hits.increment();
+                savedBytes.add(2L * html.length());
+            }
+            return stored;
+        }
+    }
+
+    /**
+     * Returns the bytes of an interned segment encoded in the given charset,
+     * which are shared by all views encoding it in the same charset as the
+     * first one did.
+     */
+    byte[] encode(String html, Charset charset) {
+        synchronized (segments) {
+            Segment segment = segments.get(html);
+            if (segment == null)
+                return html.getBytes(charset);
+            if (segment.bytes == null) {
+                segment.charset = charset;
+                segment.bytes = html.getBytes(charset);
+            } else if (segment.charset.equals(charset)) {
+                savedBytes.add(segment.bytes.length);
+            } else {
+                return html.getBytes(charset);
+            }
+            return segment.bytes;
+        }
+    }
+
+    /**
+     * The number of distinct segments of static blocks in store.
+     */
+    public int size() {
+        synchronized (segments) {
+            return segments.size();
+        }
+    }
+
+    /**
+     * The number of segments replaced by an instance already in store.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * An estimate of the number of bytes saved by the replaced segments and
+     * their encoded bytes, since the start of the application.
+     * A replaced segment counts two bytes per char, as a String of Java 8,
+     * thus the estimate is up to twice the actual saving on JDKs with compact
+     * strings, which keep Latin-1 strings with one byte per char.
+     * It does not count the headers of the objects either.
+     */
+    public long savedBytes() {
+        return savedBytes.sum();
+    }
+
+    /**
+     * A stored segment, which refers to its HTML weakly, because the HTML
+     * is also the key of the store.
+     */
+    private static final class Segment {
+        final WeakReference<String> html;
+        Charset charset;
+        byte[] bytes;
+
+        Segment(String html) {
+            this.html = new WeakReference<>(html);
+        }
+    }
+}
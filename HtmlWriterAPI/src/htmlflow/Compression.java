@@ -0,0 +1,16 @@
+package htmlflow;
+
+/**
+ * The formats of compressed output supported by {@link HtmlVisitorCompressed},
+ * which match the HTTP content codings gzip and deflate.
+ */
+public enum Compression {
+    /**
+     * A gzip member, as defined by RFC 1952.
+     */
+    GZIP,
+    /**
+     * A zlib stream, as defined by RFC 1950, which is the HTTP deflate coding.
+     */
+    DEFLATE
+}
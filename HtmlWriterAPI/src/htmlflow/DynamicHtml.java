@@ -4,9 +4,25 @@
 
 package htmlflow;
 
+import org.xmlet.htmlapifaster.Element;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Dynamic views can be bound to a domain object.
@@ -19,6 +35,8 @@ public class DynamicHtml<T> extends HtmlView<T> {
     private static final String WRONG_USE_OF_RENDER_WITHOUT_MODEL =
              "Wrong use of DynamicView! You should provide a " +
              "model parameter or use a static view instead!";
+    private static final String WRONG_USE_OF_DRY_RUN_WITH_TEMPLATE =
+             "Dry run is only supported by dynamic views with a binder!";
     /**
      * Used alternately with the field binder.
      * A template function receives 3 arguments:
@@ -93,13 +111,311 @@ public class DynamicHtml<T> extends HtmlView<T> {
 
     @Override
     public final String render(T model) {
-        binder.accept(this, model);
-        return getVisitor().finished();
+        getVisitor().beginRender();
+        try {
+            resolve(model);
+        } catch (RuntimeException e) {
+            discardVisitor();
+            throw e;
+        }
+        return finish();
     }
 
     public final String render(T model, HtmlView...partials) {
-        template.resolve(this, model, partials);
-        return getVisitor().finished();
+        getVisitor().beginRender();
+        ViewPlan<T> plan = plan();
+        plan.model = model;
+        try {
+            template.resolve(this, model, partials);
+        } catch (RuntimeException e) {
+            discardVisitor();
+            throw e;
+        } finally {
+            plan.model = null;
+        }
+        return finish();
+    }
+
+    /**
+     * Renders this view and appends the resulting HTML to out, rather than
+     * returning a new String.
+     * Reusing the same out, such as a StringBuilder, between renders, this
+     * allows a steady-state render with no allocation of its own for the
+     * resulting HTML.
+     * Views writing to a PrintStream or OutputStream have nothing to append to out.
+     */
+    public final void render(T model, Appendable out) {
+        getVisitor().beginRender();
+        try {
+            resolve(model);
+        } catch (RuntimeException e) {
+            discardVisitor();
+            throw e;
+        }
+        finish(out);
+    }
+
+    /**
+     * Renders this view for each model on the common ForkJoinPool.
+     *
+     * @see #renderAll(Stream, Function, ForkJoinPool)
+     */
+    public final BatchReport renderAll(Stream<T> models, Function<? super T, ? extends Appendable> sinkFactory) {
+        return renderAll(models, sinkFactory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Renders this view for each model, appending the HTML of each one to
+     * its own sink from sinkFactory, e.g. a Writer to a file per model.
+     * Sinks that are Closeable are closed after their render, even if it fails.
+     * A failed render is thrown, and the models not rendered yet may be skipped.
+     *
+     * The models are rendered in parallel on the given pool, through a
+     * parallel stream run from a task of that pool, because a parallel stream
+     * forks its tasks on the ForkJoinPool of the thread that runs its terminal
+     * operation, rather than on the common pool. Each worker renders with
+     * its own pooled visitor, whose buffer is reused between renders, and
+     * all of them share the cache of static blocks of this view.
+     * Views that are not thread-safe are rendered through a thread-safe
+     * copy, preloaded with the static blocks of this view if any.
+     *
+     * @return the number of renders and the throughput of the batch.
+     */
+    public final BatchReport renderAll(
+        Stream<T> models,
+        Function<? super T, ? extends Appendable> sinkFactory,
+        ForkJoinPool pool)
+    {
+        DynamicHtml<T> batch = batchView();
+        LongAdder renders = new LongAdder();
+        long start = System.nanoTime();
+        pool.submit(() -> models.parallel().forEach(model -> {
+            Appendable sink = sinkFactory.apply(model);
+            try {
+                batch.render(model, sink);
+            } finally {
+                close(sink);
+            }
+            renders.increment();
+        })).join();
+        return new BatchReport(renders.sum(), System.nanoTime() - start);
+    }
+
+    private DynamicHtml<T> batchView() {
+        if (threadSafe)
+            return this;
+        DynamicHtml<T> copy = (DynamicHtml<T>) threadSafe();
+        StaticBlocks blocks = staticBlocks();
+        if (blocks != null)
+            copy.preload(blocks);
+        return copy;
+    }
+
+    private static void close(Appendable sink) {
+        if (sink instanceof Closeable) {
+            try {
+                ((Closeable) sink).close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Renders a thread-safe view when the model is completed, on the thread
+     * that completes it, thus renders of several models may run at the same time.
+     * The HTML is only available as a whole, when the render is finished.
+     * Use {@link #writeAsync(CompletableFuture, OutputStream)} to write the
+     * cached head of the page before the model is completed.
+     */
+    public final CompletableFuture<String> renderAsync(CompletableFuture<T> model) {
+        if (!threadSafe)
+            throw new IllegalStateException(WRONG_USE_OF_RENDER_ASYNC_ON_VIEWS_NOT_THREADSAFE);
+        return model.thenApply(this::render);
+    }
+
+    /**
+     * Writes the HTML of a thread-safe view to out, encoded in UTF-8, as
+     * soon as each part is available.
+     * If the static blocks are already in cache, then the first one, i.e. the
+     * static head of the page, is written and flushed immediately.
+     * The rest of the page is written when the model is completed, on the
+     * thread that completes it, even if that thread is itself in the middle
+     * of another render of this view.
+     * If the model completes exceptionally, the visitor is discarded, out is
+     * left with the head only and the returned future fails with the same cause.
+     *
+     * @return a future completed when the whole page is written.
+     */
+    public final CompletableFuture<Void> writeAsync(CompletableFuture<T> model, OutputStream out) {
+        bindOutputStream(out);
+        HtmlVisitorCache visitor = getVisitor();
+        visitor.beginRender();
+        try {
+            if (visitor.writeHead())
+                visitor.flush();
+        } catch (RuntimeException e) {
+            discardVisitor();
+            throw e;
+        }
+        unbindVisitor();
+        return model.handle((m, failure) -> {
+            HtmlVisitorCache previous = bindVisitor(visitor);
+            try {
+                if (failure != null)
+                    throw failure instanceof CompletionException
+                        ? (CompletionException) failure
+                        : new CompletionException(failure);
+                resolve(m);
+                finish();
+                return null;
+            } catch (RuntimeException e) {
+                discardVisitor();
+                throw e;
+            } finally {
+                bindVisitor(previous);
+            }
+        });
+    }
+
+    /**
+     * Returns an output cache of the whole pages of a thread-safe copy of
+     * this view, whose key is the given function of the model, e.g. the id
+     * and version of a landing page.
+     * Pages are rendered once per key and reused for ttl, or forever if ttl is 0.
+     */
+    public final OutputCache<T> outputCache(Function<? super T, ?> key, int maxEntries, long ttl, TimeUnit unit) {
+        return new OutputCache<>((DynamicHtml<T>) threadSafe(), key, maxEntries, ttl, unit);
+    }
+
+    /**
+     * Adds a dynamic section to this view, whose content is written by the
+     * section consumer for the given element and the model of each render.
+     * It is used in place of the dynamic() of HtmlApiFaster elements, e.g.
+     * {@code tbody().of(tbody -> view.dynamic(tbody, (elem, model) -> ...))}.
+     *
+     * When all dynamic blocks of a view are added through this method, the
+     * view compiles them into a plan and later renders just replay the
+     * cached static blocks interleaved with these sections, without running
+     * the binder again.
+     * Thus, a section should only depend on its element and model arguments
+     * and never on other values captured from the binder.
+     * The begin tag of the element is closed before the section, so the
+     * static blocks are the same whatever the section writes, even nothing,
+     * and a section cannot add attributes to its element.
+     *
+     * @return the given element to continue the chain of calls.
+     */
+    public final <E extends Element> E dynamic(E element, BiConsumer<E, T> section) {
+        HtmlVisitorCache visitor = getVisitor();
+        ViewPlan<T> plan = plan();
+        visitor.closeBeginTag();
+        visitor.visitOpenDynamic();
+        if (!visitor.isDryRun)
+            section.accept(element, plan.model);
+        visitor.visitCloseDynamic();
+        plan.add(element, section);
+        return element;
+    }
+
+    /**
+     * Adds an independent dynamic section to this view, whose content is
+     * the given thread-safe partial view bound to a function of the model,
+     * e.g. {@code aside().of(aside -> view.dynamic(aside, sidebar, Page::getUser, pool))}.
+     *
+     * Once the view is compiled into a plan, each render forks all its
+     * independent sections on their executors before writing the first
+     * static block, each into its own buffer, and then writes their HTML
+     * between the cached static blocks in document order.
+     * Until then, the section is rendered in place.
+     * The model function and the partial view should not depend on the
+     * other sections, which may be running at the same time.
+     * The executor must not be a bounded pool that also renders this view,
+     * because a render blocks until all its sections are done, so renders
+     * holding every thread of that pool would wait forever for their sections.
+     *
+     * @return the given element to continue the chain of calls.
+     */
+    public final <E extends Element, U> E dynamic(
+        E element,
+        HtmlView<U> partial,
+        Function<? super T, ? extends U> model,
+        Executor executor)
+    {
+        if (!partial.threadSafe)
+            throw new IllegalStateException(WRONG_USE_OF_INDEPENDENT_SECTION_NOT_THREADSAFE);
+        HtmlVisitorCache visitor = getVisitor();
+        ViewPlan<T> plan = plan();
+        visitor.closeBeginTag();
+        visitor.visitOpenDynamic();
+        int depth = visitor.depth;
+        if (!visitor.isDryRun && visitor.isWriting())
+            visitor.write(partial.renderChunk(Collections.singletonList(model.apply(plan.model)), depth));
+        visitor.visitCloseDynamic();
+        plan.add(partial, model, depth, executor);
+        return element;
+    }
+
+    /**
+     * Adds a dynamic block to this view, whose content is written by the
+     * fragment consumer for the given element and then kept in cache under
+     * key, e.g. {@code div().of(div -> view.dynamic(div, cards, sku, d -> ...))}.
+     * While that fragment is in cache, later renders write it with no call to
+     * the consumer. The key should identify all the data used by the consumer.
+     *
+     * Keyed blocks are not recorded in the plan of the view, thus a view
+     * with keyed blocks always runs its binder.
+     *
+     * @return the given element to continue the chain of calls.
+     */
+    public final <E extends Element> E dynamic(E element, FragmentCache cache, Object key, Consumer<E> fragment) {
+        HtmlVisitorCache visitor = getVisitor();
+        visitor.visitOpenDynamic();
+        visitor.visitFragment(cache, key, () -> fragment.accept(element));
+        visitor.visitCloseDynamic();
+        return element;
+    }
+
+    /**
+     * Replays the compiled plan of this view if it is ready.
+     * Otherwise, it runs the binder, recording its dynamic sections.
+     */
+    @Override
+    final void resolve(T model) {
+        HtmlVisitorCache visitor = getVisitor();
+        ViewPlan<T> plan = plan();
+        plan.model = model;
+        try {
+            if (plan.isReady()) {
+                plan.replay(visitor);
+            } else {
+                plan.beginRecording();
+                binder.accept(this, model);
+                plan.endRecording(visitor.dynamicBlocks);
+            }
+        } finally {
+            plan.model = null;
+        }
+    }
+
+    @Override
+    final void resolve() {
+        throw new UnsupportedOperationException(WRONG_USE_OF_RENDER_WITHOUT_MODEL);
+    }
+
+    @Override
+    final void resolveDryRun() {
+        if (binder == null)
+            throw new UnsupportedOperationException(WRONG_USE_OF_DRY_RUN_WITH_TEMPLATE);
+        binder.accept(this, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ViewPlan<T> plan() {
+        HtmlVisitorCache visitor = getVisitor();
+        if (visitor.plan == null)
+            visitor.plan = new ViewPlan<T>();
+        return (ViewPlan<T>) visitor.plan;
     }
 
     @Override
@@ -116,6 +432,35 @@ public class DynamicHtml<T> extends HtmlView<T> {
         this.render(model, partials);
     }
 
+    /**
+     * Writes the HTML of a thread-safe view to out, encoded in UTF-8.
+     * All the state of this write, including its buffer, belongs to a
+     * visitor borrowed just for this call, thus concurrent writes to different
+     * outputs never share nor lock on each other, which also suits virtual threads.
+     */
+    public final void write(T model, OutputStream out) {
+        write(model, out, null);
+    }
+
+    /**
+     * Writes the HTML of a thread-safe view to out, encoded in UTF-8 and
+     * compressed in the given format, e.g. per the Accept-Encoding of a request.
+     * The static blocks are compressed only once and shared by all writes.
+     *
+     * @param compression the format of the output, or null for no compression.
+     */
+    public final void write(T model, OutputStream out, Compression compression) {
+        bindOutputStream(out, compression);
+        getVisitor().beginRender();
+        try {
+            resolve(model);
+        } catch (RuntimeException e) {
+            discardVisitor();
+            throw e;
+        }
+        finish();
+    }
+
     @Override
     protected final HtmlView<T> clone(
         Supplier<HtmlVisitorCache> visitorSupplier,
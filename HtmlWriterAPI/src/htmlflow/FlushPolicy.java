@@ -0,0 +1,44 @@
+package htmlflow;
+
+/**
+ * Defines when a view writing to a stream flushes the HTML written so far,
+ * besides the end of each render and the explicit {@link HtmlView#flush()}
+ * markers of its template.
+ * Flushing early lets clients receive the head of the page, and the markup
+ * above the fold, while the dynamic sections are still being rendered.
+ *
+ * Instances are immutable, e.g. {@code FlushPolicy.NONE.afterFirstBlock().every(16384)}.
+ */
+public final class FlushPolicy {
+
+    /**
+     * Only flushes at the end of a render and on flush() markers.
+     */
+    public static final FlushPolicy NONE = new FlushPolicy(false, 0);
+
+    final boolean afterFirstBlock;
+    final int everyBytes;
+
+    private FlushPolicy(boolean afterFirstBlock, int everyBytes) {
+        this.afterFirstBlock = afterFirstBlock;
+        this.everyBytes = everyBytes;
+    }
+
+    /**
+     * Also flushes after writing the first static block from cache, which
+     * usually holds the head of the page.
+     */
+    public FlushPolicy afterFirstBlock() {
+        return new FlushPolicy(true, everyBytes);
+    }
+
+    /**
+     * Also flushes whenever the given number of bytes is buffered.
+     * It is only supported by views writing to an OutputStream or channel.
+     */
+    public FlushPolicy every(int bytes) {
+        if (bytes <= 0)
+            throw new IllegalArgumentException("The number of bytes between flushes must be positive!");
+        return new FlushPolicy(afterFirstBlock, bytes);
+    }
+}
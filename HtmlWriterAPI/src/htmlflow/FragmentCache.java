@@ -0,0 +1,203 @@
+package htmlflow;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of rendered HTML fragments, such as keyed dynamic blocks
+ * or keyed partial views, which may be shared by any number of views.
+ * It evicts the least recently used fragment when full and, optionally,
+ * the fragments older than a time to live.
+ *
+ * A fragment is only reused at the same depth and begin tag state where it
+ * was rendered, so its indentation always fits the enclosing HTML.
+ * Thus, the same key rendered at different depths or begin tag states, or by
+ * views with different output format or escaping, keeps distinct fragments,
+ * which never write each other's HTML nor evict each other.
+ */
+public final class FragmentCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<Object, Fragment> fragments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * A cache with no time to live.
+     */
+    public FragmentCache(int maxEntries) {
+        this(maxEntries, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param ttl The time to live of each fragment, or 0 for no expiration.
+     */
+    public FragmentCache(int maxEntries, long ttl, TimeUnit unit) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("The max number of fragments must be positive!");
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.fragments = new LinkedHashMap<Object, Fragment>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Fragment> eldest) {
+                boolean isFull = size() > FragmentCache.this.maxEntries;
+                if (isFull)
+                    evictions.increment();
+                return isFull;
+            }
+        };
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return fragments.size();
+    }
+
+    /**
+     * Removes the fragments of key for all depths, output formats and escaping.
+     */
+    public synchronized void invalidate(Object key) {
+        fragments.keySet().removeIf(variant -> Objects.equals(((VariantKey) variant).key, key));
+    }
+
+    public synchronized void clear() {
+        fragments.clear();
+    }
+
+    /**
+     * Returns the fragment of key, or null if there is none or it has expired.
+     * The key must be a variant key of the visitor options and state.
+     */
+    Fragment get(Object key) {
+        Fragment fragment;
+        synchronized (this) {
+            fragment = fragments.get(key);
+            if (fragment != null && ttlNanos > 0 && System.nanoTime() - fragment.created > ttlNanos) {
+                fragments.remove(key);
+                evictions.increment();
+                fragment = null;
+            }
+        }
+        if (fragment == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return fragment;
+    }
+
+    synchronized void put(Object key, Fragment fragment) {
+        fragments.put(key, fragment);
+    }
+
+    /**
+     * The key of a fragment written with the given output format and escaping,
+     * beginning at the given depth and begin tag state.
+     */
+    static Object variantKey(Object key, OutputFormat format, boolean isEscaping, int depth, boolean isClosed) {
+        return new VariantKey(key, format, isEscaping, depth, isClosed);
+    }
+
+    /**
+     * The key of a partial view in a cache shared with other fragments.
+     */
+    static Object partialKey(HtmlView<?> partial, Object key) {
+        return new PartialKey(partial, key);
+    }
+
+    /**
+     * A rendered fragment and the visitor state where it ends.
+     */
+    static final class Fragment {
+        final String html;
+        final int endDepth;
+        final boolean endClosed;
+        final long created = System.nanoTime();
+
+        Fragment(String html, int endDepth, boolean endClosed) {
+            this.html = html;
+            this.endDepth = endDepth;
+            this.endClosed = endClosed;
+        }
+    }
+
+    private static final class PartialKey {
+        private final HtmlView<?> partial;
+        private final Object key;
+
+        PartialKey(HtmlView<?> partial, Object key) {
+            this.partial = partial;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof PartialKey))
+                return false;
+            PartialKey that = (PartialKey) other;
+            return partial == that.partial && Objects.equals(key, that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(partial) + Objects.hashCode(key);
+        }
+    }
+
+    private static final class VariantKey {
+        private final Object key;
+        private final boolean isIndented;
+        private final boolean isUnquotedAttributes;
+        private final boolean isCollapseWhitespace;
+        private final boolean isEscaping;
+        private final int depth;
+        private final boolean isClosed;
+
+        VariantKey(Object key, OutputFormat format, boolean isEscaping, int depth, boolean isClosed) {
+            this.key = key;
+            this.isIndented = format.isIndented;
+            this.isUnquotedAttributes = format.isUnquotedAttributes;
+            this.isCollapseWhitespace = format.isCollapseWhitespace;
+            this.isEscaping = isEscaping;
+            this.depth = depth;
+            this.isClosed = isClosed;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof VariantKey))
+                return false;
+            VariantKey that = (VariantKey) other;
+            return isIndented == that.isIndented
+                && isUnquotedAttributes == that.isUnquotedAttributes
+                && isCollapseWhitespace == that.isCollapseWhitespace
+                && isEscaping == that.isEscaping
+                && depth == that.depth
+                && isClosed == that.isClosed
+                && Objects.equals(key, that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            int options = (isIndented ? 1 : 0) | (isUnquotedAttributes ? 2 : 0)
+                | (isCollapseWhitespace ? 4 : 0) | (isEscaping ? 8 : 0) | (isClosed ? 16 : 0);
+            return 31 * (31 * Objects.hashCode(key) + depth) + options;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package htmlflow;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The cache of static HTML blocks of a view, which is shared by all
+ * visitors of that view.
+ * Each visitor collects the static blocks on its first visit, while the
+ * cache is still empty, and then tries to publish them.
+ * The first published blocks win and are never changed after that.
+ * They are published in a flat BlockLayout, whose segments of HTML are
+ * interned in the shared BlockStore, thus segments with the same content,
+ * e.g. the head or footer common to different pages, are kept once.
+ */
+final class HtmlCache {
+
+    private final AtomicReference<BlockLayout> blocks = new AtomicReference<>();
+
+    /**
+     * Returns the layout of cached blocks, or null if there is none yet.
+     */
+    BlockLayout blocks() {
+        return blocks.get();
+    }
+
+    /**
+     * Publishes the given blocks if the cache is still empty.
+     * Returns the blocks of the cache, which may have been published
+     * before by another visitor.
+     */
+    BlockLayout publish(List<HtmlVisitorCache.HtmlBlockInfo> collected, Charset charset) {
+        if (blocks.get() == null)
+            blocks.compareAndSet(null, new BlockLayout(collected, charset, BlockStore.shared()));
+        return blocks.get();
+    }
+}
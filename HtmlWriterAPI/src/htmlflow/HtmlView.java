@@ -8,13 +8,24 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 import javax.lang.model.element.Element;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.joining;
 
 /**
@@ -31,12 +42,44 @@ public abstract class HtmlView<T> implements HtmlWriter<T>, Element<HtmlView, El
     static final String WRONG_USE_OF_PRINTSTREAM_ON_THREADSAFE_VIEWS =
             "Cannot use PrintStream output for thread-safe views!";
 
+    static final String WRONG_USE_OF_CHARSET_OF_PRINTSTREAM =
+            "The charset of cached blocks must be the charset of the PrintStream!";
+
     static final String WRONG_USE_OF_THREADSAFE_ON_VIEWS_WITH_PRINTSTREAM =
             "Cannot set thread-safety for views with PrintStream output!";
 
+    static final String WRONG_USE_OF_OUTPUTSTREAM_ON_THREADSAFE_VIEWS =
+            "Cannot use OutputStream output for thread-safe views!";
+
+    static final String WRONG_USE_OF_THREADSAFE_ON_VIEWS_WITH_OUTPUTSTREAM =
+            "Cannot set thread-safety for views with OutputStream output!";
+
+    static final String WRONG_USE_OF_WRITE_TO_OUTPUTSTREAM_ON_VIEWS_NOT_THREADSAFE =
+            "Writing to a given OutputStream is only supported on thread-safe views! Use setOutputStream() instead.";
+
+    static final String WRONG_USE_OF_RENDER_ASYNC_ON_VIEWS_NOT_THREADSAFE =
+            "Rendering asynchronously is only supported on thread-safe views!";
+
+    static final String WRONG_USE_OF_PARALLEL_PARTIALS_NOT_THREADSAFE =
+            "Rendering partials in parallel is only supported on thread-safe partial views!";
+
+    static final String WRONG_USE_OF_INDEPENDENT_SECTION_NOT_THREADSAFE =
+            "Independent sections are only supported with thread-safe partial views!";
+
     private static final String HEADER;
+    private static final String COMPACT_HEADER;
     private static final String NEWLINE = System.getProperty("line.separator");
     private static final String HEADER_TEMPLATE = "templates/HtmlView-Header.txt";
+    /**
+     * The number of chunks per worker of the parallel rendering of partials,
+     * which balances the load of workers with uneven items.
+     */
+    private static final int CHUNKS_PER_WORKER = 4;
+    /**
+     * The max number of idle visitors kept by a thread-safe view for each
+     * kind of output, i.e. String, OutputStream and compressed OutputStream.
+     */
+    static final int MAX_POOLED_VISITORS = Runtime.getRuntime().availableProcessors() * 2;
 
     static {
         try {
@@ -49,31 +92,93 @@ public abstract class HtmlView<T> implements HtmlWriter<T>, Element<HtmlView, El
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(headerStream))) {
                 HEADER = reader.lines().collect(joining(NEWLINE));
             }
+            COMPACT_HEADER = HEADER.replace(NEWLINE, "");
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
     private final HtmlVisitorCache visitor;
-    private final ThreadLocal<HtmlVisitorCache> threadLocalVisitor;
+    /**
+     * The static blocks of this view, shared by all its visitors.
+     */
+    private final HtmlCache cache = new HtmlCache();
+    /**
+     * On thread-safe views, the idle visitors that may be borrowed by a render.
+     */
+    private final BlockingQueue<HtmlVisitorCache> visitorsPool;
+    /**
+     * On thread-safe views, the visitor borrowed by the render in progress on each thread.
+     * It is bound only while rendering, thus it does not keep a visitor per thread.
+     */
+    private final ThreadLocal<HtmlVisitorCache> currentVisitor;
+    /**
+     * On thread-safe views, the number of visitors borrowed by renders in progress.
+     */
+    private final AtomicInteger busyVisitors = new AtomicInteger();
+    /**
+     * On thread-safe views, the number of visitors created for renders.
+     */
+    private final AtomicInteger createdVisitors = new AtomicInteger();
+    /**
+     * On thread-safe views, the static blocks pre-encoded in UTF-8 of the
+     * visitors writing to an OutputStream given on each render.
+     */
+    private final HtmlCache streamCache;
+    /**
+     * On thread-safe views, the idle visitors writing to an OutputStream given on each render.
+     */
+    private final BlockingQueue<HtmlVisitorOutputStream> streamVisitorsPool;
+    /**
+     * On thread-safe views, the idle visitors writing compressed output to
+     * an OutputStream given on each render, which share the streamCache.
+     */
+    private final BlockingQueue<HtmlVisitorCompressed> compressedVisitorsPool;
+    /**
+     * A visitor of this view whose options are copied by visitors created
+     * apart from the visitorSupplier.
+     */
+    private final HtmlVisitorCache prototype;
     private final Supplier<HtmlVisitorCache> visitorSupplier;
-    private final boolean threadSafe;
+    final boolean threadSafe;
+    /**
+     * On views that are not thread-safe, the visitor of a warm-up in progress, or null.
+     */
+    private HtmlVisitorCache warmUpVisitor;
 
     public HtmlView(Supplier<HtmlVisitorCache> visitorSupplier, boolean threadSafe) {
         this.visitorSupplier = visitorSupplier;
         this.threadSafe = threadSafe;
         if(threadSafe) {
             this.visitor = null;
-            this.threadLocalVisitor = ThreadLocal.withInitial(visitorSupplier);
+            this.visitorsPool = new ArrayBlockingQueue<>(MAX_POOLED_VISITORS);
+            this.currentVisitor = new ThreadLocal<>();
+            this.streamCache = new HtmlCache();
+            this.streamVisitorsPool = new ArrayBlockingQueue<>(MAX_POOLED_VISITORS);
+            this.compressedVisitorsPool = new ArrayBlockingQueue<>(MAX_POOLED_VISITORS);
+            this.prototype = newVisitor();
+            this.visitorsPool.offer(prototype);
         } else {
-            this.visitor = visitorSupplier.get();
-            this.threadLocalVisitor = null;
+            this.visitor = newVisitor();
+            this.visitorsPool = null;
+            this.currentVisitor = null;
+            this.streamCache = null;
+            this.streamVisitorsPool = null;
+            this.compressedVisitorsPool = null;
+            this.prototype = visitor;
         }
     }
 
+    private HtmlVisitorCache newVisitor() {
+        HtmlVisitorCache v = visitorSupplier.get();
+        v.shareCache(cache);
+        return v;
+    }
+
     public final Html<HtmlView> html() {
-        if (this.getVisitor().isWriting())
-            this.getVisitor().write(HEADER);
+        HtmlVisitorCache v = this.getVisitor();
+        if (v.isWriting())
+            v.write(v.format.isIndented ? HEADER : COMPACT_HEADER);
         return new Html<>(this);
     }
 
@@ -96,7 +201,172 @@ public abstract class HtmlView<T> implements HtmlWriter<T>, Element<HtmlView, El
         Supplier<HtmlVisitorCache> v = out == null
             ? () -> new HtmlVisitorStringBuilder(getVisitor().isDynamic)
             : () -> new HtmlVisitorPrintStream(out, getVisitor().isDynamic);
-        return clone(v, false);
+        return clone(withOptions(v), false);
+    }
+
+    /**
+     * Sets the current PrintStream and keeps the cached static blocks
+     * pre-encoded with the given charset, which must be the charset of out.
+     * Thus, after the first write, static blocks are copied as bytes to the
+     * PrintStream without being encoded again on each write.
+     * The charset of out is only checked on Java 18 or later, which is the
+     * first release where PrintStream tells its charset.
+     *
+     * @throws IllegalArgumentException if charset differs from the charset of out.
+     */
+    public final HtmlWriter<T> setPrintStream(PrintStream out, Charset charset) {
+        if(threadSafe)
+            throw new IllegalArgumentException(WRONG_USE_OF_PRINTSTREAM_ON_THREADSAFE_VIEWS);
+        if(out != null && charset != null && !charsetOf(out, charset).equals(charset))
+            throw new IllegalArgumentException(WRONG_USE_OF_CHARSET_OF_PRINTSTREAM);
+        boolean isDynamic = getVisitor().isDynamic;
+        return clone(withOptions(() -> new HtmlVisitorPrintStream(out, isDynamic, charset)), false);
+    }
+
+    /**
+     * Returns the charset of out through PrintStream.charset(), which is
+     * called by reflection because this library targets Java 8, or the
+     * expected charset when it is unknown.
+     */
+    private static Charset charsetOf(PrintStream out, Charset expected) {
+        try {
+            return (Charset) PrintStream.class.getMethod("charset").invoke(out);
+        } catch (ReflectiveOperationException e) {
+            return expected;
+        }
+    }
+
+    /**
+     * Sets an OutputStream as the output of this view.
+     * The HTML is encoded in UTF-8 into a reusable buffer that is written to out
+     * in large chunks. Any IOException is thrown as UncheckedIOException.
+     */
+    public final HtmlWriter<T> setOutputStream(OutputStream out) {
+        if(threadSafe)
+            throw new IllegalArgumentException(WRONG_USE_OF_OUTPUTSTREAM_ON_THREADSAFE_VIEWS);
+        boolean isDynamic = getVisitor().isDynamic;
+        return clone(withOptions(() -> new HtmlVisitorOutputStream(out, isDynamic)), false);
+    }
+
+    /**
+     * Sets an OutputStream as the output of this view, which receives the
+     * HTML encoded in UTF-8 and compressed in the given format.
+     * The static blocks are compressed only once and only the dynamic
+     * content is compressed on each write.
+     */
+    public final HtmlWriter<T> setOutputStream(OutputStream out, Compression compression) {
+        if(threadSafe)
+            throw new IllegalArgumentException(WRONG_USE_OF_OUTPUTSTREAM_ON_THREADSAFE_VIEWS);
+        boolean isDynamic = getVisitor().isDynamic;
+        return clone(withOptions(() -> new HtmlVisitorCompressed(out, isDynamic, compression)), false);
+    }
+
+    /**
+     * Sets a WritableByteChannel as the output of this view.
+     * The HTML is encoded in UTF-8 into a reusable buffer that is written to
+     * the channel in large chunks. Any IOException is thrown as UncheckedIOException.
+     */
+    public final HtmlWriter<T> setOutputChannel(WritableByteChannel channel) {
+        if(threadSafe)
+            throw new IllegalArgumentException(WRONG_USE_OF_OUTPUTSTREAM_ON_THREADSAFE_VIEWS);
+        boolean isDynamic = getVisitor().isDynamic;
+        return clone(withOptions(() -> new HtmlVisitorOutputStream(channel, isDynamic)), false);
+    }
+
+    /**
+     * Returns a copy of this view that flushes its output according to the
+     * given policy, which only has effect on views writing to a stream.
+     */
+    public final HtmlView<T> setFlushPolicy(FlushPolicy flushPolicy) {
+        Supplier<HtmlVisitorCache> supplier = visitorSupplier;
+        return clone(() -> {
+            HtmlVisitorCache v = supplier.get();
+            v.setFlushPolicy(flushPolicy);
+            return v;
+        }, threadSafe);
+    }
+
+    /**
+     * Returns a copy of this view that writes its HTML with the given
+     * format, e.g. {@code OutputFormat.COMPACT} with no newlines nor indentation.
+     */
+    public final HtmlView<T> setOutputFormat(OutputFormat format) {
+        Supplier<HtmlVisitorCache> supplier = visitorSupplier;
+        return clone(() -> {
+            HtmlVisitorCache v = supplier.get();
+            v.format = format;
+            return v;
+        }, threadSafe);
+    }
+
+    /**
+     * Returns a copy of this view that escapes, or not, the chars
+     * {@code < > & " '} of texts and attribute values.
+     * Escaping is enabled by default and it should only be disabled for
+     * views whose texts are all trusted HTML. For a single trusted text
+     * use {@link #raw(String)} instead.
+     * Views whose texts were already escaped before escaping became the
+     * default should disable it, otherwise their entities are escaped twice.
+     */
+    public final HtmlView<T> setEscaping(boolean isEscaping) {
+        Supplier<HtmlVisitorCache> supplier = visitorSupplier;
+        return clone(() -> {
+            HtmlVisitorCache v = supplier.get();
+            v.isEscaping = isEscaping;
+            return v;
+        }, threadSafe);
+    }
+
+    /**
+     * Writes trusted HTML with no escaping as a text of the current
+     * element, e.g. {@code div().of(div -> view.raw("<b>Bold</b>"))}.
+     */
+    public final void raw(String html) {
+        getVisitor().visitRaw(html);
+    }
+
+    /**
+     * Returns a copy of this view that notifies the given listener of the
+     * metrics of each render, e.g. an {@link HtmlViewStats}.
+     */
+    public final HtmlView<T> setRenderListener(RenderListener listener) {
+        Supplier<HtmlVisitorCache> supplier = visitorSupplier;
+        return clone(() -> {
+            HtmlVisitorCache v = supplier.get();
+            v.renderListener = listener;
+            return v;
+        }, threadSafe);
+    }
+
+    /**
+     * The listener of the renders of this view, or null.
+     */
+    final RenderListener renderListener() {
+        return prototype.renderListener;
+    }
+
+    /**
+     * Wraps a supplier of visitors with a new kind of output, so those
+     * visitors keep the output options of the visitors of this view.
+     */
+    private Supplier<HtmlVisitorCache> withOptions(Supplier<HtmlVisitorCache> supplier) {
+        HtmlVisitorCache options = prototype;
+        return () -> {
+            HtmlVisitorCache v = supplier.get();
+            v.copyOptions(options);
+            return v;
+        };
+    }
+
+    /**
+     * A flush marker to be used in a template, e.g. after the head of a page.
+     * It writes all the HTML preceding the marker to the final destination
+     * of a view writing to a stream, and flushes it.
+     * Each marker ends a static block, as a dynamic block does, hence views with
+     * flush markers are never compiled into a plan.
+     */
+    public final void flush() {
+        getVisitor().visitFlush();
     }
 
     @Override
@@ -113,14 +383,310 @@ public abstract class HtmlView<T> implements HtmlWriter<T>, Element<HtmlView, El
         if(getVisitor() instanceof HtmlVisitorPrintStream) {
             throw new IllegalStateException(WRONG_USE_OF_THREADSAFE_ON_VIEWS_WITH_PRINTSTREAM);
         }
+        if(getVisitor() instanceof HtmlVisitorOutputStream) {
+            throw new IllegalStateException(WRONG_USE_OF_THREADSAFE_ON_VIEWS_WITH_OUTPUTSTREAM);
+        }
         return clone(visitorSupplier, true);
     }
 
+    /**
+     * On thread-safe views, returns the visitor bound to the current thread,
+     * which is borrowed from the pool, or created, on first use of a render.
+     */
     @Override
     public final HtmlVisitorCache getVisitor() {
-        return threadSafe
-            ? threadLocalVisitor.get()
-            : visitor;
+        if(!threadSafe)
+            return warmUpVisitor == null ? visitor : warmUpVisitor;
+        HtmlVisitorCache v = currentVisitor.get();
+        if(v == null) {
+            v = visitorsPool.poll();
+            if(v == null) {
+                v = newVisitor();
+                createdVisitors.incrementAndGet();
+            } else {
+                v.refreshCache();
+            }
+            currentVisitor.set(v);
+            busyVisitors.incrementAndGet();
+        }
+        return v;
+    }
+
+    /**
+     * Returns a copy of the static blocks of this view, or null if they are
+     * not in cache yet, i.e. before its first render or dry run.
+     */
+    public final StaticBlocks staticBlocks() {
+        BlockLayout blocks = cache.blocks();
+        return blocks == null ? null : new StaticBlocks(blocks);
+    }
+
+    /**
+     * Fills the cache of this view with the given static blocks, which
+     * should be a copy of the static blocks of another instance of the same
+     * view, unless the cache is already filled.
+     * It should be called before the first render.
+     *
+     * @return this view to continue the chain of calls.
+     */
+    public final HtmlView<T> preload(StaticBlocks blocks) {
+        publish(cache, blocks, prototype.blockCharset());
+        if(streamCache != null)
+            publish(streamCache, blocks, UTF_8);
+        if(!threadSafe)
+            visitor.refreshCache();
+        return this;
+    }
+
+    private static void publish(HtmlCache cache, StaticBlocks blocks, Charset charset) {
+        List<HtmlVisitorCache.HtmlBlockInfo> list = new ArrayList<>(blocks.size());
+        for (int i = 0; i < blocks.size(); i++)
+            list.add(new HtmlVisitorCache.HtmlBlockInfo(blocks.html(i), blocks.depth(i), blocks.isClosed(i)));
+        cache.publish(list, charset);
+    }
+
+    /**
+     * Fills the cache of static blocks of this view with no model and no
+     * output, unless it is already filled.
+     * The sections added by {@link DynamicHtml#dynamic(org.xmlet.htmlapifaster.Element, java.util.function.BiConsumer)}
+     * are skipped and their elements are just closed, as if each section
+     * had written some content into its element.
+     * Thus, it is only supported by static views and by dynamic views with
+     * a binder that uses the model only inside such sections.
+     */
+    public final void dryRun() {
+        warmUp(this::resolveDryRun, true);
+    }
+
+    /**
+     * Fills the cache of static blocks of this view with a render of the
+     * given sample model whose output is discarded, unless the cache is
+     * already filled. Static views should use dryRun() instead.
+     */
+    public final void warmUp(T sample) {
+        warmUp(() -> resolve(sample), false);
+    }
+
+    /**
+     * Renders this view on a visitor of its own, which writes to a
+     * discarded StringBuilder and publishes the static blocks to the cache
+     * of this view. The output of the view is left untouched.
+     */
+    private void warmUp(Runnable resolver, boolean isDryRun) {
+        if(cache.blocks() != null)
+            return;
+        HtmlVisitorCache v = new HtmlVisitorStringBuilder(prototype.isDynamic, prototype.blockCharset());
+        v.copyOptions(prototype);
+        v.renderListener = null;
+        v.shareCache(cache);
+        v.isDryRun = isDryRun;
+        HtmlVisitorCache previous = swapVisitor(v);
+        try {
+            resolver.run();
+            v.finished();
+        } finally {
+            swapVisitor(previous);
+        }
+        if(!threadSafe)
+            visitor.refreshCache();
+    }
+
+    private HtmlVisitorCache swapVisitor(HtmlVisitorCache v) {
+        if(threadSafe)
+            return bindVisitor(v);
+        HtmlVisitorCache previous = warmUpVisitor;
+        warmUpVisitor = v;
+        return previous;
+    }
+
+    /**
+     * Binds to the current thread a visitor writing to out, which is
+     * borrowed from the pool, or created, for a single render of a
+     * thread-safe view.
+     * The visitor has no locks and buffers the output in a reusable byte
+     * buffer, thus it is suitable for renders on virtual threads.
+     */
+    final void bindOutputStream(OutputStream out) {
+        if(!threadSafe)
+            throw new IllegalStateException(WRONG_USE_OF_WRITE_TO_OUTPUTSTREAM_ON_VIEWS_NOT_THREADSAFE);
+        HtmlVisitorOutputStream v = streamVisitorsPool.poll();
+        if(v == null) {
+            v = new HtmlVisitorOutputStream((OutputStream) null, prototype.isDynamic);
+            v.copyOptions(prototype);
+            v.shareCache(streamCache);
+            createdVisitors.incrementAndGet();
+        } else {
+            v.refreshCache();
+        }
+        v.setOutput(out);
+        currentVisitor.set(v);
+        busyVisitors.incrementAndGet();
+    }
+
+    /**
+     * Alternative to bindOutputStream(out) for output compressed in the
+     * given format, or not compressed if compression is null.
+     */
+    final void bindOutputStream(OutputStream out, Compression compression) {
+        if(compression == null) {
+            bindOutputStream(out);
+            return;
+        }
+        if(!threadSafe)
+            throw new IllegalStateException(WRONG_USE_OF_WRITE_TO_OUTPUTSTREAM_ON_VIEWS_NOT_THREADSAFE);
+        HtmlVisitorCompressed v = compressedVisitorsPool.poll();
+        if(v == null) {
+            v = new HtmlVisitorCompressed(null, prototype.isDynamic, compression);
+            v.copyOptions(prototype);
+            v.shareCache(streamCache);
+            createdVisitors.incrementAndGet();
+        } else {
+            v.refreshCache();
+        }
+        v.setOutput(out, compression);
+        currentVisitor.set(v);
+        busyVisitors.incrementAndGet();
+    }
+
+    /**
+     * Finishes the render of current visitor and returns the resulting HTML.
+     * On thread-safe views the visitor is then released to the pool.
+     */
+    final String finish() {
+        String html;
+        try {
+            html = getVisitor().finished();
+        } catch (RuntimeException e) {
+            discardVisitor();
+            throw e;
+        }
+        releaseVisitor();
+        return html;
+    }
+
+    /**
+     * Finishes the render of current visitor appending the resulting HTML to out.
+     * On thread-safe views the visitor is then released to the pool.
+     */
+    final void finish(Appendable out) {
+        try {
+            getVisitor().finished(out);
+        } catch (RuntimeException e) {
+            discardVisitor();
+            throw e;
+        }
+        releaseVisitor();
+    }
+
+    /**
+     * Returns the cached HTML of this view when it is a single static block,
+     * i.e. the whole output of a static view with no flush markers, or null.
+     */
+    final String singleBlockHtml() {
+        BlockLayout blocks = cache.blocks();
+        return blocks != null && blocks.size() == 1 ? blocks.html(0) : null;
+    }
+
+    /**
+     * Returns the cached UTF-8 bytes of a thread-safe view when its output
+     * to a given OutputStream is a single static block, or null.
+     */
+    final byte[] singleBlockBytes() {
+        BlockLayout blocks = streamCache == null ? null : streamCache.blocks();
+        return blocks != null && blocks.size() == 1 ? blocks.bytes(0) : null;
+    }
+
+    /**
+     * Unbinds the visitor from the current thread and returns it to the pool,
+     * unless the pool is already full, in which case its deflater, if any, is ended.
+     */
+    private void releaseVisitor() {
+        if(threadSafe) {
+            HtmlVisitorCache v = currentVisitor.get();
+            if(v != null) {
+                currentVisitor.remove();
+                busyVisitors.decrementAndGet();
+                if(v instanceof HtmlVisitorCompressed) {
+                    ((HtmlVisitorCompressed) v).setOutput(null);
+                    if(!compressedVisitorsPool.offer((HtmlVisitorCompressed) v))
+                        ((HtmlVisitorCompressed) v).end();
+                } else if(v instanceof HtmlVisitorOutputStream) {
+                    ((HtmlVisitorOutputStream) v).setOutput(null);
+                    streamVisitorsPool.offer((HtmlVisitorOutputStream) v);
+                } else {
+                    visitorsPool.offer(v);
+                }
+            }
+        }
+    }
+
+    /**
+     * Unbinds the visitor of a render in progress from the current thread,
+     * so that render may be resumed on another thread with bindVisitor().
+     */
+    final HtmlVisitorCache unbindVisitor() {
+        HtmlVisitorCache v = getVisitor();
+        if(threadSafe)
+            currentVisitor.remove();
+        return v;
+    }
+
+    /**
+     * Binds to the current thread a visitor of a render in progress unbound
+     * by unbindVisitor() on another thread.
+     *
+     * @return the visitor that was bound to the current thread, or null.
+     */
+    final HtmlVisitorCache bindVisitor(HtmlVisitorCache v) {
+        if(!threadSafe)
+            return null;
+        HtmlVisitorCache previous = currentVisitor.get();
+        if(v == null)
+            currentVisitor.remove();
+        else
+            currentVisitor.set(v);
+        return previous;
+    }
+
+    /**
+     * Unbinds the visitor from the current thread without returning it to the
+     * pool, because a failed render may have left it in an inconsistent state.
+     */
+    final void discardVisitor() {
+        HtmlVisitorCache v = threadSafe ? currentVisitor.get() : null;
+        if(v != null) {
+            currentVisitor.remove();
+            busyVisitors.decrementAndGet();
+            if(v instanceof HtmlVisitorCompressed)
+                ((HtmlVisitorCompressed) v).end();
+        }
+    }
+
+    /**
+     * On thread-safe views, returns the number of visitors borrowed by the
+     * renders in progress, which is at most the number of concurrent renders.
+     */
+    public final int busyVisitors() {
+        return busyVisitors.get();
+    }
+
+    /**
+     * On thread-safe views, returns the number of visitors created so far
+     * because there was no idle visitor to borrow, which stays at the peak
+     * of concurrent renders while they fit in the pools.
+     */
+    public final int createdVisitors() {
+        return createdVisitors.get();
+    }
+
+    /**
+     * On thread-safe views, returns the number of idle visitors kept for
+     * later renders, which is at most MAX_POOLED_VISITORS for each kind of output.
+     */
+    public final int idleVisitors() {
+        if(!threadSafe)
+            return 0;
+        return visitorsPool.size() + streamVisitorsPool.size() + compressedVisitorsPool.size();
     }
 
     @Override
@@ -146,10 +712,7 @@ public abstract class HtmlView<T> implements HtmlWriter<T>, Element<HtmlView, El
      * @param <U> the type of the domain model of the partial view.
      */
     public final <U> void addPartial(HtmlView<U> partial, U model) {
-        getVisitor().closeBeginTag();
-        partial.getVisitor().depth = getVisitor().depth;
-        if (this.getVisitor().isWriting())
-            getVisitor().write(partial.render(model));
+        writePartial(partial, () -> partial.resolve(model));
     }
 
     /**
@@ -159,11 +722,199 @@ public abstract class HtmlView<T> implements HtmlWriter<T>, Element<HtmlView, El
      * @param <U> the type of the domain model of the partial view.
      */
     public final <U> void addPartial(HtmlView<U> partial) {
-        getVisitor().closeBeginTag();
-        partial.getVisitor().depth = getVisitor().depth;
-        if (this.getVisitor().isWriting())
-            getVisitor().write(partial.render());
+        writePartial(partial, partial::resolve);
+    }
+
+    /**
+     * Adds a partial view to this view, reusing the HTML rendered for the
+     * same key from the given cache, e.g. the key of a product card may be
+     * the id and the version of the product.
+     * The cache may be shared with other partials, because each key is
+     * combined with the partial view.
+     *
+     * @param partial inner view.
+     * @param model the domain object bound to the partial view.
+     * @param cache the cache of rendered fragments.
+     * @param key the key of the HTML rendered by the partial view for model.
+     * @param <U> the type of the domain model of the partial view.
+     */
+    public final <U> void addPartial(HtmlView<U> partial, U model, FragmentCache cache, Object key) {
+        HtmlVisitorCache parent = getVisitor();
+        parent.closeBeginTag();
+        parent.visitFragment(cache, FragmentCache.partialKey(partial, key), () -> addPartial(partial, model));
+    }
+
+    /**
+     * Adds the partial view once for each item, as addPartial() does, but
+     * when there are at least threshold items they are rendered in parallel
+     * on the common ForkJoinPool.
+     *
+     * @see #addPartials(HtmlView, List, int, ForkJoinPool)
+     */
+    public final <U> void addPartials(HtmlView<U> partial, List<U> items, int threshold) {
+        addPartials(partial, items, threshold, ForkJoinPool.commonPool());
     }
 
+    /**
+     * Adds the partial view once for each item, e.g. each row of a table.
+     * When there are at least threshold items, they are split in chunks
+     * rendered in parallel on the given pool, each chunk at the current
+     * depth of this view, and then the chunks are written in order.
+     * Below threshold, the items are rendered sequentially.
+     *
+     * The partial view must be thread-safe to be rendered in parallel,
+     * because each worker renders its chunks with its own visitor.
+     *
+     * @param partial inner view rendered for each item.
+     * @param items the domain objects bound to the partial view.
+     * @param threshold the min number of items rendered in parallel.
+     * @param pool the pool rendering the chunks.
+     * @param <U> the type of the domain model of the partial view.
+     */
+    public final <U> void addPartials(HtmlView<U> partial, List<U> items, int threshold, ForkJoinPool pool) {
+        if (items.size() < threshold || items.size() < 2) {
+            for (U item : items)
+                addPartial(partial, item);
+            return;
+        }
+        if (!partial.threadSafe)
+            throw new IllegalStateException(WRONG_USE_OF_PARALLEL_PARTIALS_NOT_THREADSAFE);
+        HtmlVisitorCache parent = getVisitor();
+        parent.closeBeginTag();
+        if (!parent.isWriting())
+            return;
+        long start = System.nanoTime();
+        int chunkSize = Math.max(1, items.size() / (pool.getParallelism() * CHUNKS_PER_WORKER));
+        String[] chunks = new String[(items.size() + chunkSize - 1) / chunkSize];
+        pool.invoke(new ChunksTask<>(partial, items, parent.depth, chunkSize, chunks, 0, chunks.length));
+        for (String chunk : chunks)
+            parent.write(chunk);
+        notifyPartial(start);
+    }
+
+    /**
+     * Renders this view for each item of a chunk at the given depth, with
+     * the visitor of the current thread, and returns the resulting HTML.
+     */
+    final String renderChunk(List<T> items, int depth) {
+        StringBuilder out = new StringBuilder();
+        for (T item : items) {
+            HtmlVisitorCache v = getVisitor();
+            v.depth = depth;
+            v.beginRender();
+            try {
+                resolve(item);
+            } catch (RuntimeException e) {
+                discardVisitor();
+                throw e;
+            }
+            finish(out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Splits the range of chunks in halves until a single chunk is left,
+     * which is then rendered into its slot of the chunks array.
+     */
+    private static class ChunksTask<U> extends RecursiveAction {
+        final HtmlView<U> partial;
+        final List<U> items;
+        final int depth;
+        final int chunkSize;
+        final String[] chunks;
+        final int from;
+        final int to;
+
+        ChunksTask(HtmlView<U> partial, List<U> items, int depth, int chunkSize, String[] chunks, int from, int to) {
+            this.partial = partial;
+            this.items = items;
+            this.depth = depth;
+            this.chunkSize = chunkSize;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                int begin = from * chunkSize;
+                int end = Math.min(begin + chunkSize, items.size());
+                chunks[from] = partial.renderChunk(items.subList(begin, end), depth);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                    new ChunksTask<>(partial, items, depth, chunkSize, chunks, from, middle),
+                    new ChunksTask<>(partial, items, depth, chunkSize, chunks, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Hands over the current depth to the partial view and renders it
+     * straight into the output of this view, whenever both outputs are
+     * compatible, or otherwise into its own output that is then copied.
+     */
+    private void writePartial(HtmlView<?> partial, Runnable resolver) {
+        HtmlVisitorCache parent = getVisitor();
+        parent.closeBeginTag();
+        if (parent.isWriting()) {
+            long start = System.nanoTime();
+            partial.writeTo(parent, resolver);
+            notifyPartial(start);
+        }
+    }
+
+    /**
+     * Renders this view at the depth of parent, which must be writing, so
+     * a thread-safe partial only borrows a visitor when it has something to write.
+     */
+    private void writeTo(HtmlVisitorCache parent, Runnable resolver) {
+        HtmlVisitorCache v = getVisitor();
+        v.depth = parent.depth;
+        v.beginRender();
+        if (!v.attach(parent)) {
+            try {
+                resolver.run();
+            } catch (RuntimeException e) {
+                discardVisitor();
+                throw e;
+            }
+            parent.write(finish());
+            return;
+        }
+        try {
+            resolver.run();
+            v.finishedAttached();
+        } catch (RuntimeException e) {
+            v.detach();
+            discardVisitor();
+            throw e;
+        }
+        releaseVisitor();
+    }
+
+    private void notifyPartial(long start) {
+        RenderListener listener = getVisitor().renderListener;
+        if (listener != null)
+            listener.onPartial(System.nanoTime() - start);
+    }
+
+    /**
+     * Visits the elements of this view for the given model, without finishing the render.
+     */
+    abstract void resolve(T model);
+
+    /**
+     * Visits the elements of this view with no model, without finishing the render.
+     */
+    abstract void resolve();
+
+    /**
+     * Visits the elements of this view on a dry run, without finishing it.
+     */
+    abstract void resolveDryRun();
+
     protected abstract HtmlView<T> clone(Supplier<HtmlVisitorCache> visitorSupplier, boolean threadSafe);
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package htmlflow;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A registry of the views of an application, which fills the cache of
+ * static blocks of all of them at startup, e.g. before accepting requests,
+ * so the first requests after a deploy do not pay the uncached render.
+ *
+ * Each view is warmed up either with a sample model or with a dry run,
+ * which needs no model. All views are warmed up in parallel.
+ * Thread-safe views share the static blocks between all their visitors,
+ * thus any thread renders them from cache once they are warmed up.
+ */
+public class HtmlViewRegistry {
+
+    private final Map<String, Entry<?>> views = new LinkedHashMap<>();
+
+    /**
+     * Registers a view that is warmed up with a dry run.
+     *
+     * @return this registry to continue the chain of calls.
+     */
+    public synchronized HtmlViewRegistry register(String name, HtmlView<?> view) {
+        return add(name, new Entry<>(view, null, true));
+    }
+
+    /**
+     * Registers a view that is warmed up with a render of the sample model.
+     *
+     * @return this registry to continue the chain of calls.
+     */
+    public synchronized <T> HtmlViewRegistry register(String name, HtmlView<T> view, T sample) {
+        return add(name, new Entry<>(view, sample, false));
+    }
+
+    private HtmlViewRegistry add(String name, Entry<?> entry) {
+        if (views.putIfAbsent(name, entry) != null)
+            throw new IllegalArgumentException("There is already a view registered as " + name + "!");
+        return this;
+    }
+
+    /**
+     * Returns the view registered with the given name, or null.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> HtmlView<T> get(String name) {
+        Entry<?> entry = views.get(name);
+        return entry == null ? null : (HtmlView<T>) entry.view;
+    }
+
+    /**
+     * Warms up all registered views in parallel on the common ForkJoinPool.
+     *
+     * @return the warm-up time of each view, by order of registration.
+     */
+    public Map<String, Duration> warmUp() {
+        return warmUp(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Warms up all registered views in parallel on the given executor.
+     * Views already in cache take no time.
+     *
+     * @return the warm-up time of each view, by order of registration.
+     * @throws IllegalStateException if the warm-up of any view fails.
+     */
+    public Map<String, Duration> warmUp(Executor executor) {
+        Map<String, CompletableFuture<Duration>> tasks = new LinkedHashMap<>();
+        synchronized (this) {
+            views.forEach((name, entry) ->
+                tasks.put(name, CompletableFuture.supplyAsync(entry::warmUp, executor)));
+        }
+        Map<String, Duration> times = new LinkedHashMap<>();
+        tasks.forEach((name, task) -> {
+            try {
+                times.put(name, task.join());
+            } catch (CompletionException e) {
+                throw new IllegalStateException("Warm-up of view " + name + " failed!", e.getCause());
+            }
+        });
+        return times;
+    }
+
+    private static class Entry<T> {
+        final HtmlView<T> view;
+        final T sample;
+        final boolean isDryRun;
+
+        Entry(HtmlView<T> view, T sample, boolean isDryRun) {
+            this.view = view;
+            this.sample = sample;
+            this.isDryRun = isDryRun;
+        }
+
+        Duration warmUp() {
+            long start = System.nanoTime();
+            if (isDryRun)
+                view.dryRun();
+            else
+                view.warmUp(sample);
+            return Duration.ofNanos(System.nanoTime() - start);
+        }
+    }
+}
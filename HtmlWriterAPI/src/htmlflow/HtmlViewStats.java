@@ -0,0 +1,181 @@
+package htmlflow;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A RenderListener keeping the counters of the renders of one or more
+ * views, which may be exposed through JMX with register(), e.g.
+ * {@code view.setRenderListener(new HtmlViewStats().register("home"))}.
+ *
+ * Counters are LongAdders, thus concurrent renders do not contend on them.
+ * Latencies are kept in a histogram of power of 2 buckets of nanoseconds.
+ */
+public class HtmlViewStats implements RenderListener, HtmlViewStatsMBean {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder renderNanos = new LongAdder();
+    private final LongAdder[] histogram = new LongAdder[BUCKETS];
+    private final LongAdder cachedLength = new LongAdder();
+    private final LongAdder knownLength = new LongAdder();
+    private final LongAdder partials = new LongAdder();
+    private final LongAdder partialNanos = new LongAdder();
+    private volatile int staticBlocks;
+    private volatile long cacheBuildNanos;
+
+    public HtmlViewStats() {
+        for (int i = 0; i < BUCKETS; i++)
+            histogram[i] = new LongAdder();
+    }
+
+    /**
+     * Registers these stats in the platform MBeanServer with the ObjectName
+     * {@code htmlflow:type=HtmlViewStats,name=<name>}.
+     *
+     * @return these stats to continue the chain of calls.
+     */
+    public final HtmlViewStats register(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Removes from the platform MBeanServer the stats registered with the given name.
+     */
+    public static void unregister(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("htmlflow:type=HtmlViewStats,name=" + ObjectName.quote(name));
+    }
+
+    @Override
+    public void onRender(long nanos, long cachedLength, long totalLength) {
+        renders.increment();
+        renderNanos.add(nanos);
+        histogram[bucket(nanos)].increment();
+        if (totalLength >= 0) {
+            this.cachedLength.add(cachedLength);
+            knownLength.add(totalLength);
+        }
+    }
+
+    @Override
+    public void onCacheBuilt(long nanos, int staticBlocks) {
+        this.staticBlocks = staticBlocks;
+        this.cacheBuildNanos = nanos;
+    }
+
+    @Override
+    public void onPartial(long nanos) {
+        partials.increment();
+        partialNanos.add(nanos);
+    }
+
+    /**
+     * The bucket i holds the latencies lower than 2^i nanoseconds.
+     */
+    private static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(nanos);
+    }
+
+    @Override
+    public long getRenders() {
+        return renders.sum();
+    }
+
+    @Override
+    public long getTotalRenderNanos() {
+        return renderNanos.sum();
+    }
+
+    @Override
+    public double getMeanRenderMicros() {
+        long count = renders.sum();
+        return count == 0 ? 0 : renderNanos.sum() / 1000.0 / count;
+    }
+
+    @Override
+    public long getRenderMicrosPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram[i].sum();
+            total += counts[i];
+        }
+        if (total == 0)
+            return 0;
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return (1L << i) / 1000;
+        }
+        return Long.MAX_VALUE / 1000;
+    }
+
+    @Override
+    public long getP50RenderMicros() {
+        return getRenderMicrosPercentile(50);
+    }
+
+    @Override
+    public long getP99RenderMicros() {
+        return getRenderMicrosPercentile(99);
+    }
+
+    @Override
+    public double getCachedRatio() {
+        long total = knownLength.sum();
+        return total == 0 ? 0 : (double) cachedLength.sum() / total;
+    }
+
+    @Override
+    public int getStaticBlocks() {
+        return staticBlocks;
+    }
+
+    @Override
+    public long getCacheBuildNanos() {
+        return cacheBuildNanos;
+    }
+
+    @Override
+    public long getPartials() {
+        return partials.sum();
+    }
+
+    @Override
+    public long getTotalPartialNanos() {
+        return partialNanos.sum();
+    }
+
+    @Override
+    public void reset() {
+        renders.reset();
+        renderNanos.reset();
+        for (LongAdder bucket : histogram)
+            bucket.reset();
+        cachedLength.reset();
+        knownLength.reset();
+        partials.reset();
+        partialNanos.reset();
+    }
+}
@@ -0,0 +1,38 @@
+package htmlflow;
+
+/**
+ * The management interface of {@link HtmlViewStats}.
+ */
+public interface HtmlViewStatsMBean {
+
+    long getRenders();
+
+    long getTotalRenderNanos();
+
+    double getMeanRenderMicros();
+
+    /**
+     * The upper bound, in microseconds, of the render latency of the given
+     * percentile, e.g. 99.0, with the precision of a power of 2.
+     */
+    long getRenderMicrosPercentile(double percentile);
+
+    long getP50RenderMicros();
+
+    long getP99RenderMicros();
+
+    /**
+     * The ratio of the output copied from the cache of static blocks.
+     */
+    double getCachedRatio();
+
+    int getStaticBlocks();
+
+    long getCacheBuildNanos();
+
+    long getPartials();
+
+    long getTotalPartialNanos();
+
+    void reset();
+}
@@ -2,7 +2,11 @@ package htmlflow;
 
 import org.xmlet.htmlapifaster.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -14,10 +18,22 @@ import java.util.List;
 
  */
 public abstract class HtmlVisitorCache extends ElementVisitor {
+    /**
+     * Static blocks are split into segments at the begin and end of the
+     * elements up to this depth, e.g. html, head, body and their children,
+     * so the segments of the doctype, a common head, nav bar or footer are
+     * interned apart in the BlockStore, even if the pages around them differ.
+     */
+    static final int SEGMENT_DEPTH = 2;
     /**
      * The begin index of a static HTML block.
      */
     private int staticBlockIndex = 0;
+    /**
+     * The indexes where the static block being collected is split into segments.
+     */
+    private int[] segmentCuts = new int[16];
+    private int segmentCutCount = 0;
     /**
      * keep track of current indentation.
      */
@@ -34,17 +50,37 @@ public abstract class HtmlVisitorCache extends ElementVisitor {
     private boolean openDynamic = false;
     /**
      * True when the first visit is finished and all static blocks of HTML
-     * are cached in cacheBlocksList.
+     * are cached in cachedBlocks.
      */
     private boolean isCached = false;
     /**
-     * A cache list of static html blocks.
+     * The cache of static html blocks, which may be shared with other visitors of the same view.
      */
-    private final List<HtmlVisitorStringBuilder.HtmlBlockInfo> cacheBlocksList = new ArrayList<>();
+    private HtmlCache cache = new HtmlCache();
     /**
-     * The current index in cacheBlocksList corresponding to a static HTML block.
+     * The list where this visitor collects the static blocks until isCached.
+     */
+    private List<HtmlVisitorStringBuilder.HtmlBlockInfo> cacheBlocksList = new ArrayList<>();
+    /**
+     * The static blocks of cache in a BlockLayout once isCached, or null.
+     */
+    private BlockLayout cachedBlocks;
+    /**
+     * The current index in cachedBlocks corresponding to a static HTML block.
      */
     private int cacheIndex = 0;
+    /**
+     * The number of dynamic blocks visited on current render.
+     */
+    int dynamicBlocks = 0;
+    /**
+     * True when the first static block was written ahead of the render by writeHead().
+     */
+    private boolean isHeadWritten = false;
+    /**
+     * The compiled plan of a DynamicHtml with this visitor, or null.
+     */
+    ViewPlan<?> plan;
 
     /**
      * If this visitor enables or not dynamic blocks.
@@ -53,8 +89,50 @@ public abstract class HtmlVisitorCache extends ElementVisitor {
      */
     final boolean isDynamic;
 
+    /**
+     * When not null the static blocks are also kept pre-encoded with this charset,
+     * which lets byte oriented visitors write cached blocks with no further encoding.
+     */
+    private final Charset blockCharset;
+
+    /**
+     * When to flush the output, besides the end of the render and flush markers.
+     */
+    FlushPolicy flushPolicy = FlushPolicy.NONE;
+    /**
+     * The layout of the output, which must be set before the first visit,
+     * because it is also the layout of the static blocks in cache.
+     */
+    OutputFormat format = OutputFormat.INDENTED;
+    /**
+     * If texts and attribute values are escaped, which is the default.
+     */
+    boolean isEscaping = true;
+    /**
+     * Notified at the end of each render, or null.
+     */
+    RenderListener renderListener;
+    /**
+     * The nanoTime of the begin of the current render, only when there is a renderListener.
+     */
+    private long renderStart;
+    /**
+     * The length of the cached blocks written on the current render.
+     */
+    private long cachedLength;
+    /**
+     * The size() of the output of a parent view when this visitor was
+     * attached to it, or 0 when it writes to its own output.
+     */
+    private int outputBegin = 0;
+
     HtmlVisitorCache(boolean isDynamic) {
+        this(isDynamic, null);
+    }
+
+    HtmlVisitorCache(boolean isDynamic, Charset blockCharset) {
         this.isDynamic = isDynamic;
+        this.blockCharset = blockCharset;
     }
 
     /**
@@ -69,6 +147,22 @@ public abstract class HtmlVisitorCache extends ElementVisitor {
     public final boolean isWriting() {
         return !isCached || openDynamic;
     }
+
+    /**
+     * True when all static blocks of HTML are in cache and thus the
+     * output is not being collected into the cache.
+     */
+    final boolean isCached() {
+        return isCached;
+    }
+    /**
+     * True when the whole output is a single static block in cache, thus
+     * there is nothing left to visit.
+     */
+    final boolean isSingleBlock() {
+        return isCached && cachedBlocks.size() == 1;
+    }
+
     /**
      * While the static blocks are not in cache then it appends elements to
      * the main StringBuilder or PrintStream.
@@ -86,6 +180,7 @@ public abstract class HtmlVisitorCache extends ElementVisitor {
     public final void visitElement(Element element) {
         newlineAndIndent();
         if (isWriting()){
+            cutSegment();
             beginTag(element.getName()); // "<elementName"
             isClosed = false;
         }
@@ -101,13 +196,27 @@ public abstract class HtmlVisitorCache extends ElementVisitor {
             depth--;
             newlineAndIndent();
             endTag(element.getName()); // </elementName>
+            cutSegment();
         }
     }
 
     @Override
     public final void visitAttribute(String attributeName, String attributeValue) {
         if (isWriting()){
-            addAttribute(attributeName, attributeValue);
+            if (format.isUnquotedAttributes && OutputFormat.isUnquotable(attributeValue)){
+                write(Tags.SPACE);
+                write(attributeName);
+                write(Tags.EQUALS);
+                writeText(attributeValue);
+            } else if (isEscaping && Tags.indexOfEscapable(attributeValue) >= 0){
+                write(Tags.SPACE);
+                write(attributeName);
+                write(Tags.ATTRIBUTE_MID);
+                writeEscaped(attributeValue);
+                write(Tags.QUOTATION);
+            } else {
+                addAttribute(attributeName, attributeValue);
+            }
         }
     }
 
@@ -115,10 +224,53 @@ public abstract class HtmlVisitorCache extends ElementVisitor {
     public final <R> void visitText(Text<? extends Element, R> text) {
         newlineAndIndent();
         if (isWriting()){
-            write(text.getValue());
+            writeText(format.isCollapseWhitespace
+                ? OutputFormat.collapse(text.getValue())
+                : text.getValue());
+        }
+    }
+
+    /**
+     * Writes trusted HTML with no escaping, as a text of the current element.
+     */
+    final void visitRaw(String html) {
+        newlineAndIndent();
+        if (isWriting()){
+            write(html);
         }
     }
 
+    private void writeText(String text) {
+        if (isEscaping)
+            writeEscaped(text);
+        else
+            write(text);
+    }
+
+    /**
+     * Writes the text replacing the chars {@code < > & " '} by their entities.
+     * The runs of text between those chars are written straight from the
+     * text, thus with no allocation, which is also the case when there is
+     * nothing to escape.
+     */
+    private void writeEscaped(String text) {
+        int length = text.length();
+        int last = 0;
+        for (int i = 0; i < length; i++) {
+            String entity = Tags.entity(text.charAt(i));
+            if (entity != null) {
+                if (i > last)
+                    write(text, last, i);
+                write(entity);
+                last = i + 1;
+            }
+        }
+        if (last == 0)
+            write(text);
+        else if (last < length)
+            write(text, last, length);
+    }
+
 
     @Override
     public final <R> void visitComment(Text<? extends Element, R> text) {
@@ -129,36 +281,91 @@ public abstract class HtmlVisitorCache extends ElementVisitor {
     }
 
     /**
-     * Copies from or to cacheBlocksList depending on whether the content is in cache or not.
-     * Copying from cacheBlocksList will write through write() method.
+     * Copies from cachedBlocks or to cacheBlocksList depending on whether the content is in cache or not.
+     * Copying from cachedBlocks will write through writeBlock() method.
      * Copying to cacheBlocksList will read from substring().
      */
     @Override
     public final void visitOpenDynamic(){
         if (!isDynamic)
             throw new IllegalStateException("Wrong use of dynamic() in a static view!");
+        openBlock();
+    }
 
+    @Override
+    public final void visitCloseDynamic(){
+        closeBlock();
+    }
+
+    /**
+     * A flush marker of a template ends the current static block, as an empty
+     * dynamic block does, so the cached HTML preceding the marker is written
+     * before flushing. Inside a dynamic block it just flushes.
+     */
+    final void visitFlush(){
+        if (!openDynamic){
+            openBlock();
+            closeBlock();
+        }
+        flush();
+    }
+
+    private void openBlock(){
         openDynamic = true;
+        dynamicBlocks++;
         if (isCached){
-            HtmlVisitorStringBuilder.HtmlBlockInfo block = cacheBlocksList.get(cacheIndex);
-            this.write(block.html);
-            this.depth = block.currentDepth;
-            this.isClosed = block.isClosed;
+            if (cacheIndex > 0 || !isHeadWritten)
+                this.writeCached(cacheIndex);
+            if (cacheIndex == 0 && flushPolicy.afterFirstBlock)
+                this.flush();
+            this.depth = cachedBlocks.depth(cacheIndex);
+            this.isClosed = cachedBlocks.isClosed(cacheIndex);
             ++cacheIndex;
         } else {
-            String staticBlock = substring(staticBlockIndex);
-            cacheBlocksList.add(new HtmlVisitorStringBuilder.HtmlBlockInfo(staticBlock, depth, isClosed));
+            cacheBlocksList.add(collectBlock());
         }
     }
 
-    @Override
-    public final void visitCloseDynamic(){
+    private void closeBlock(){
         openDynamic = false;
         if (!isCached){
             staticBlockIndex = size();
         }
     }
 
+    /**
+     * Marks the current index as a cut between segments of the static
+     * block being collected, if the current element is shallow enough.
+     */
+    private void cutSegment(){
+        if (!isCached && !openDynamic && depth <= SEGMENT_DEPTH){
+            if (segmentCutCount == segmentCuts.length)
+                segmentCuts = Arrays.copyOf(segmentCuts, segmentCutCount * 2);
+            segmentCuts[segmentCutCount++] = size();
+        }
+    }
+
+    /**
+     * Returns the static block collected since staticBlockIndex, split into
+     * segments at the cuts marked meanwhile, with no empty segments.
+     */
+    private HtmlBlockInfo collectBlock(){
+        int end = size();
+        String[] segments = new String[segmentCutCount + 1];
+        int count = 0;
+        int begin = staticBlockIndex;
+        for (int i = 0; i < segmentCutCount; i++) {
+            int cut = segmentCuts[i];
+            if (cut > begin && cut < end) {
+                segments[count++] = substring(begin, cut);
+                begin = cut;
+            }
+        }
+        segments[count++] = substring(begin, end);
+        segmentCutCount = 0;
+        return new HtmlBlockInfo(Arrays.copyOf(segments, count), depth, isClosed);
+    }
+
     /**
      * Void elements: area, base, br, col, embed, hr, img, input, link, meta, param, source, track, wbr.
      * This method is invoked by visitParent specialization methods (at the end of this class)
@@ -177,10 +384,13 @@ public abstract class HtmlVisitorCache extends ElementVisitor {
      * Adds a new line and indentation.
      * Checks whether the parent element is still opened or not (!isClosed).
      * If it is open then it closes the parent begin tag with ">" (!isClosed).
+     * On a compact format it just closes the parent begin tag.
      */
     private void newlineAndIndent(){
         if (isWriting()){
-            if (isClosed){
+            if (!format.isIndented){
+                closeBeginTag();
+            } else if (isClosed){
                 write(Indentation.tabs(depth)); // \n\t\t\t\...
             } else {
                 depth++;
@@ -202,37 +412,253 @@ public abstract class HtmlVisitorCache extends ElementVisitor {
     }
 
     final String finished(){
-        if (isCached && cacheIndex <= cacheBlocksList.size()){
-            HtmlVisitorStringBuilder.HtmlBlockInfo block = cacheBlocksList.get(cacheIndex);
-            write(block.html);
-            isClosed = block.isClosed;
-            depth = block.currentDepth;
+        boolean isBuildingCache = !isCached;
+        finishVisit();
+        notifyRender(isBuildingCache);
+        String result = readAndReset();
+        reset();
+        return result;
+    }
+
+    /**
+     * Alternative to finished() that moves the resulting HTML to the given
+     * out, rather than returning a new String.
+     */
+    final void finished(Appendable out){
+        boolean isBuildingCache = !isCached;
+        finishVisit();
+        notifyRender(isBuildingCache);
+        readAndReset(out);
+        reset();
+    }
+
+    /**
+     * Attaches this visitor of a partial view to the output of the visitor
+     * of its parent view, so the partial writes straight into the parent output.
+     * The static blocks of the partial are still collected into its own cache.
+     *
+     * @return false if the output of parent cannot be shared with this visitor.
+     */
+    final boolean attach(HtmlVisitorCache parent) {
+        if (!attachOutput(parent))
+            return false;
+        outputBegin = size();
+        if (!isCached)
+            staticBlockIndex = outputBegin;
+        return true;
+    }
+
+    /**
+     * Alternative to finished() for a visitor attached to the output of a
+     * parent view, which is left there and then detached.
+     */
+    final void finishedAttached(){
+        boolean isBuildingCache = !isCached;
+        try {
+            finishVisit();
+            notifyRender(isBuildingCache);
+        } finally {
+            detach();
+        }
+        reset();
+    }
+
+    /**
+     * Restores the own output of this visitor after attach().
+     */
+    final void detach() {
+        detachOutput();
+        outputBegin = 0;
+        if (!isCached) {
+            staticBlockIndex = 0;
+            segmentCutCount = 0;
+        }
+    }
+
+    /**
+     * Replaces the output of this visitor by the output of parent.
+     * By default it is not supported and returns false.
+     */
+    boolean attachOutput(HtmlVisitorCache parent) {
+        return false;
+    }
+
+    /**
+     * Restores the own output of this visitor replaced by attachOutput().
+     */
+    void detachOutput() { }
+
+    /**
+     * Writes the fragment of key from cache, if it is there for the current
+     * depth and begin tag state, or otherwise renders it, capturing its
+     * output into the cache under a key of that depth and begin tag state.
+     */
+    final void visitFragment(FragmentCache cache, Object key, Runnable fragment) {
+        if (!isWriting())
+            return;
+        Object variant = FragmentCache.variantKey(key, format, isEscaping, depth, isClosed);
+        FragmentCache.Fragment cached = cache.get(variant);
+        if (cached != null) {
+            write(cached.html);
+            depth = cached.endDepth;
+            isClosed = cached.endClosed;
+            return;
+        }
+        int mark = beginCapture();
+        boolean isRendered = false;
+        String html;
+        try {
+            fragment.run();
+            isRendered = true;
+        } finally {
+            html = endCapture(mark);
+        }
+        if (isRendered)
+            cache.put(variant, new FragmentCache.Fragment(html, depth, isClosed));
+    }
+
+    /**
+     * Begins capturing the output written from now on, until endCapture().
+     * By default the output is kept in memory and the mark is its size().
+     */
+    int beginCapture() {
+        return size();
+    }
+
+    /**
+     * Returns the output written since the beginCapture() that returned mark.
+     */
+    String endCapture(int mark) {
+        return substring(mark);
+    }
+
+    private void reset(){
+        cacheIndex = 0;
+        dynamicBlocks = 0;
+        isHeadWritten = false;
+        cachedLength = 0;
+    }
+
+    /**
+     * True on a dry run of a view, which visits its elements with no model
+     * and skips the sections of dynamic blocks, just to fill the cache.
+     */
+    boolean isDryRun = false;
+
+    /**
+     * Marks the begin of a render, which is timed if there is a renderListener.
+     */
+    final void beginRender(){
+        if (renderListener != null)
+            renderStart = System.nanoTime();
+    }
+
+    private void notifyRender(boolean isBuildingCache){
+        if (renderListener != null){
+            long nanos = System.nanoTime() - renderStart;
+            if (isBuildingCache)
+                renderListener.onCacheBuilt(nanos, cachedBlocks.size());
+            renderListener.onRender(nanos, cachedLength, length());
+        }
+    }
+
+    private void writeCached(int index){
+        cachedLength += cachedBlocks.length(index);
+        writeBlock(cachedBlocks, index);
+    }
+
+    /**
+     * Writes the first static block ahead of the render, which will then skip it.
+     * It is only possible when all static blocks are already in cache.
+     *
+     * @return true if the first block was written.
+     */
+    final boolean writeHead(){
+        if (!isCached)
+            return false;
+        writeCached(0);
+        isHeadWritten = true;
+        return true;
+    }
+
+    /**
+     * Writes the last static block, or collects it into the cache on first visit.
+     */
+    private void finishVisit(){
+        if (isCached && cacheIndex < cachedBlocks.size()){
+            if (cacheIndex > 0 || !isHeadWritten)
+                writeCached(cacheIndex);
+            isClosed = cachedBlocks.isClosed(cacheIndex);
+            depth = cachedBlocks.depth(cacheIndex);
         }
 
         if (!isCached){
-            String staticBlock = substring(staticBlockIndex);
-            cacheBlocksList.add(new HtmlVisitorStringBuilder.HtmlBlockInfo(staticBlock, depth, isClosed));
+            cacheBlocksList.add(collectBlock());
+            cachedBlocks = cache.publish(cacheBlocksList, blockCharset);
+            cacheBlocksList = new ArrayList<>();
             isCached = true;
         }
+    }
 
-        String result = readAndReset();
-        cacheIndex = 0;
-        return result;
+    final Charset blockCharset() {
+        return blockCharset;
     }
 
+
+    /**
+     * Shares again the cache of this idle visitor if it was filled by
+     * another visitor, so the next render of this visitor needs no visit
+     * of the static elements.
+     */
+    final void refreshCache() {
+        if (!isCached && cache.blocks() != null)
+            shareCache(cache);
+    }
+
+    /**
+     * Shares the given cache of static blocks with other visitors of the same view.
+     * If it is already filled then this visitor starts with all static blocks in cache.
+     */
+    final void shareCache(HtmlCache cache) {
+        BlockLayout blocks = cache.blocks();
+        this.cache = cache;
+        this.isCached = blocks != null;
+        this.cachedBlocks = blocks;
+        this.cacheBlocksList = new ArrayList<>();
+    }
+
+    /**
+     * A static block collected on the first visit, until the cache is
+     * published in a flat BlockLayout.
+     * Its HTML is made of segments, which are interned apart in the BlockStore.
+     */
     static class HtmlBlockInfo {
 
-        final String html;
+        final String[] segments;
         final int currentDepth;
         final boolean isClosed;
 
         HtmlBlockInfo(String html, int currentDepth, boolean isClosed){
-            this.html = html;
+            this(new String[] {html}, currentDepth, isClosed);
+        }
+
+        HtmlBlockInfo(String[] segments, int currentDepth, boolean isClosed){
+            this.segments = segments;
             this.currentDepth = currentDepth;
             this.isClosed = isClosed;
         }
     }
 
+    /**
+     * Writes the cached static block with the given index to the output.
+     * By default it writes each segment of the block, yet byte oriented
+     * visitors may override it to copy the pre-encoded segments instead.
+     */
+    protected void writeBlock(BlockLayout blocks, int index) {
+        for (int s = blocks.firstSegment(index), end = blocks.firstSegment(index + 1); s < end; s++)
+            write(blocks.segments[s]);
+    }
+
     /**
      * Write {@code "<elementName"}.
      */
@@ -263,21 +689,85 @@ public abstract class HtmlVisitorCache extends ElementVisitor {
      */
     protected abstract void write(char c);
 
+    /**
+     * Writes the chars of text from begin to end, exclusive, directly to the output.
+     * Visitors should override it to avoid the intermediate substring.
+     */
+    protected void write(String text, int begin, int end) {
+        write(text.substring(begin, end));
+    }
+
+    /**
+     * Flushes the content written so far to the final destination, if this
+     * visitor writes to a stream. By default it does nothing.
+     */
+    protected void flush() { }
+
+    void setFlushPolicy(FlushPolicy flushPolicy) {
+        this.flushPolicy = flushPolicy;
+    }
+
+    /**
+     * Copies the output options of another visitor of the same view.
+     */
+    void copyOptions(HtmlVisitorCache other) {
+        setFlushPolicy(other.flushPolicy);
+        format = other.format;
+        isEscaping = other.isEscaping;
+        renderListener = other.renderListener;
+    }
+
     /**
      * Returns a substring with the HTML content from the index staticBlockIndex
      */
     protected abstract String substring(int staticBlockIndex);
 
+    /**
+     * Returns a substring with the HTML content from begin to end, exclusive,
+     * which are indexes in the units of size().
+     * Visitors should override it to avoid the intermediate substring.
+     */
+    protected String substring(int begin, int end) {
+        return substring(begin).substring(0, end - begin);
+    }
+
     /**
      * The number of characters written until this moment.
      */
     protected abstract int size();
 
+    /**
+     * The length of the output of the current render, in chars, or in bytes
+     * for visitors keeping the static blocks pre-encoded, or -1 if unknown.
+     * By default it is the size(), excluding the output of a parent view
+     * when this visitor is attached to it.
+     */
+    protected long length() {
+        return size() - outputBegin;
+    }
+
     /**
      * Returns the accumulated output and clear it.
      */
     protected abstract String readAndReset();
 
+    /**
+     * Appends the accumulated output to out and clear it.
+     * Visitors holding the output in memory should override it to avoid
+     * the intermediate String of readAndReset().
+     * Visitors writing to a stream have nothing to append.
+     */
+    protected void readAndReset(Appendable out) {
+        String data = readAndReset();
+        if (data != null) {
+            try {
+                out.append(data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
     /*=========================================================================*/
     /*------------            Root Element Methods         --------------------*/
     /*=========================================================================*/
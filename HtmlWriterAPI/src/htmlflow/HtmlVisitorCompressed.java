@@ -0,0 +1,233 @@
+package htmlflow;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+/**
+ * This is the implementation of the ElementVisitor (from HtmlApiFaster
+ * library) which writes the visited Html elements to an OutputStream
+ * compressed with gzip or deflate.
+ *
+ * The static blocks are deflated only once, on their first use, and kept
+ * in cache. On each render only the dynamic content is deflated.
+ * Each piece of deflated data ends on a byte boundary with a full flush,
+ * which also resets the history of the compressor, thus the pieces are
+ * stitched into a single valid stream with no references across them.
+ * Flushes of the output in the middle of dynamic content only sync the
+ * compressor, so its history is still reset before the next cached block.
+ * Yet, the checksum of the stream still covers all uncompressed bytes.
+ */
+public class HtmlVisitorCompressed extends HtmlVisitorOutputStream {
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9c};
+
+    private Compression compression;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final Adler32 adler = new Adler32();
+    private Checksum checksum;
+    private final byte[] deflated = new byte[DEFAULT_BUFFER_SIZE];
+    /**
+     * The number of uncompressed bytes of the current stream.
+     */
+    private long inputSize = 0;
+    /**
+     * True when the header of the current stream is already written.
+     */
+    private boolean isStreamOpen = false;
+    /**
+     * True when the deflater has input not yet flushed.
+     */
+    private boolean isPending = false;
+    /**
+     * True when the deflater has had input since its last full flush, thus
+     * its history must be reset before writing a cached block.
+     */
+    private boolean isHistoryDirty = false;
+
+    public HtmlVisitorCompressed(OutputStream out, boolean isDynamic, Compression compression) {
+        this(out, isDynamic, compression, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param level The compression level of the dynamic content.
+     *              Static blocks are always deflated with the best compression.
+     */
+    public HtmlVisitorCompressed(OutputStream out, boolean isDynamic, Compression compression, int level) {
+        super(out, null, isDynamic, DEFAULT_BUFFER_SIZE);
+        this.deflater = new Deflater(level, true);
+        setCompression(compression);
+    }
+
+    /**
+     * Sets the final destination and format of a pooled visitor for the next render.
+     */
+    final void setOutput(OutputStream out, Compression compression) {
+        setOutput(out);
+        setCompression(compression);
+    }
+
+    private void setCompression(Compression compression) {
+        this.compression = compression;
+        this.checksum = compression == Compression.GZIP ? crc : adler;
+    }
+
+    /**
+     * Deflates the content of the buffer, keeping the history of the deflater.
+     */
+    @Override
+    void sink(byte[] bytes, int offset, int length) {
+        openStream();
+        checksum.update(bytes, offset, length);
+        inputSize += length;
+        deflater.setInput(bytes, offset, length);
+        while (!deflater.needsInput()) {
+            int n = deflater.deflate(deflated, 0, deflated.length, Deflater.NO_FLUSH);
+            if (n > 0)
+                super.sink(deflated, 0, n);
+        }
+        isPending = true;
+        isHistoryDirty = true;
+    }
+
+    /**
+     * Ends the dynamic content deflated since the last full flush with a
+     * full flush and then writes the block deflated in cache.
+     */
+    @Override
+    protected void writeBlock(BlockLayout blocks, int index) {
+        int length = blocks.length(index);
+        if (length == 0)
+            return;
+        drain();
+        openStream();
+        if (isHistoryDirty) {
+            deflate(Deflater.FULL_FLUSH);
+            isPending = false;
+            isHistoryDirty = false;
+        }
+        for (int s = blocks.firstSegment(index), end = blocks.firstSegment(index + 1); s < end; s++)
+            checksum.update(blocks.segmentBytes[s], 0, blocks.segmentBytes[s].length);
+        inputSize += length;
+        byte[] data = deflated(blocks, index);
+        super.sink(data, 0, data.length);
+    }
+
+    /**
+     * Syncs the deflater, keeping its history, and flushes the output.
+     */
+    @Override
+    protected void flush() {
+        if (canDrain()) {
+            drain();
+            if (isPending) {
+                deflate(Deflater.SYNC_FLUSH);
+                isPending = false;
+            }
+            flushOut();
+        }
+    }
+
+    /**
+     * Finishes the compressed stream with its trailer and resets this
+     * visitor for the next stream.
+     */
+    @Override
+    protected String readAndReset() {
+        drain();
+        openStream();
+        deflater.finish();
+        while (!deflater.finished()) {
+            int n = deflater.deflate(deflated, 0, deflated.length);
+            super.sink(deflated, 0, n);
+        }
+        writeTrailer();
+        deflater.reset();
+        checksum.reset();
+        inputSize = 0;
+        isStreamOpen = false;
+        isPending = false;
+        isHistoryDirty = false;
+        return super.readAndReset();
+    }
+
+    /**
+     * Releases the native memory of the deflater of this visitor, which
+     * must not be used afterwards.
+     */
+    final void end() {
+        deflater.end();
+    }
+
+    private void openStream() {
+        if (!isStreamOpen) {
+            isStreamOpen = true;
+            byte[] header = compression == Compression.GZIP ? GZIP_HEADER : ZLIB_HEADER;
+            super.sink(header, 0, header.length);
+        }
+    }
+
+    private void writeTrailer() {
+        long value = checksum.getValue();
+        byte[] trailer;
+        if (compression == Compression.GZIP) {
+            trailer = new byte[8];
+            writeIntLE(trailer, 0, value);
+            writeIntLE(trailer, 4, inputSize);
+        } else {
+            trailer = new byte[] {
+                (byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value
+            };
+        }
+        super.sink(trailer, 0, trailer.length);
+    }
+
+    private static void writeIntLE(byte[] bytes, int offset, long value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >> 8);
+        bytes[offset + 2] = (byte) (value >> 16);
+        bytes[offset + 3] = (byte) (value >> 24);
+    }
+
+    private void deflate(int flush) {
+        int n;
+        do {
+            n = deflater.deflate(deflated, 0, deflated.length, flush);
+            super.sink(deflated, 0, n);
+        } while (n == deflated.length);
+    }
+
+    /**
+     * Returns the bytes of block deflated with the best compression and a
+     * full flush, which are computed on first use and then kept in cache.
+     */
+    private static byte[] deflated(BlockLayout blocks, int index) {
+        byte[] data = blocks.deflated.get(index);
+        if (data == null) {
+            Deflater blockDeflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+            try {
+                int length = blocks.length(index);
+                blockDeflater.setInput(blocks.bytes(index), 0, length);
+                byte[] out = new byte[length + 64];
+                int size = 0;
+                int n;
+                do {
+                    if (size == out.length)
+                        out = Arrays.copyOf(out, out.length * 2);
+                    n = blockDeflater.deflate(out, size, out.length - size, Deflater.FULL_FLUSH);
+                    size += n;
+                } while (size == out.length);
+                data = Arrays.copyOf(out, size);
+            } finally {
+                blockDeflater.end();
+            }
+            blocks.deflated.set(index, data);
+        }
+        return data;
+    }
+}
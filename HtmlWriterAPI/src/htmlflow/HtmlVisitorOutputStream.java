@@ -0,0 +1,337 @@
+package htmlflow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * This is the implementation of the ElementVisitor (from HtmlApiFaster
+ * library) which encodes the visited Html elements in UTF-8 into an internal
+ * byte buffer, which is flushed in large chunks to an OutputStream or to a
+ * WritableByteChannel.
+ *
+ * Unlike HtmlVisitorPrintStream there is no locking on each write and any
+ * IOException is propagated as an UncheckedIOException.
+ * The static blocks are cached pre-encoded in UTF-8 and copied as bytes.
+ *
+ * While the static blocks are not in cache the whole content is kept in the
+ * buffer, because it is also the source of the static blocks collected into
+ * the cache. After that, the buffer is flushed whenever it gets full.
+ */
+public class HtmlVisitorOutputStream extends HtmlVisitorCache {
+
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+    /**
+     * The max number of bytes of an encoded char, i.e. a surrogate pair.
+     */
+    private static final int MAX_CHAR_BYTES = 4;
+    private static final byte REPLACEMENT = '?';
+    /**
+     * Alternately the final destination is out or channel.
+     * The out of pooled visitors is set on each render of thread-safe views.
+     */
+    private OutputStream out;
+    private final WritableByteChannel channel;
+    private int bufferSize;
+    /**
+     * If the final destination is also flushed whenever the buffer is drained.
+     */
+    private boolean flushOnDrain = false;
+    private byte[] buffer;
+    private ByteBuffer wrapper;
+    private int count;
+    /**
+     * The number of bytes already written to the final destination on the current render.
+     */
+    private long drained;
+    /**
+     * The number of fragments being captured, which keep the buffer from being drained.
+     */
+    private int captures = 0;
+
+    public HtmlVisitorOutputStream(OutputStream out, boolean isDynamic) {
+        this(out, null, isDynamic, DEFAULT_BUFFER_SIZE);
+    }
+
+    public HtmlVisitorOutputStream(WritableByteChannel channel, boolean isDynamic) {
+        this(null, channel, isDynamic, DEFAULT_BUFFER_SIZE);
+    }
+
+    HtmlVisitorOutputStream(OutputStream out, WritableByteChannel channel, boolean isDynamic, int bufferSize) {
+        super(isDynamic, UTF_8);
+        this.out = out;
+        this.channel = channel;
+        this.bufferSize = bufferSize;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Sets the final destination of a pooled visitor for the next render.
+     */
+    final void setOutput(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    protected void beginTag(String elementName) {
+        write(Tags.BEGIN_TAG);          // <
+        write(elementName);             // <name
+    }
+
+    @Override
+    protected void endTag(String elementName) {
+        write(Tags.BEGIN_CLOSE_TAG);    // </
+        write(elementName);             // </name
+        write(Tags.FINISH_TAG);         // </name>
+    }
+
+    @Override
+    protected void addAttribute(String attributeName, String attributeValue) {
+        write(Tags.SPACE);
+        write(attributeName);
+        write(Tags.ATTRIBUTE_MID);
+        write(attributeValue);
+        write(Tags.QUOTATION);
+    }
+
+    @Override
+    protected void addComment(String comment) {
+        write(Tags.BEGIN_COMMENT_TAG);  // <!--
+        write(comment);
+        write(Tags.END_COMMENT_TAG);    // -->
+    }
+
+    @Override
+    protected void write(String text) {
+        write(text, 0, text.length());
+    }
+
+    @Override
+    protected void write(String text, int begin, int end) {
+        for (int i = begin; i < end; i++) {
+            if (count + MAX_CHAR_BYTES > buffer.length)
+                makeRoom(MAX_CHAR_BYTES);
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[count++] = (byte) c;
+            } else if (Character.isHighSurrogate(c)
+                && i + 1 < end
+                && Character.isLowSurrogate(text.charAt(i + 1))) {
+                encode(Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+    @Override
+    protected void write(char c) {
+        if (count + MAX_CHAR_BYTES > buffer.length)
+            makeRoom(MAX_CHAR_BYTES);
+        if (c < 0x80)
+            buffer[count++] = (byte) c;
+        else
+            encode(c);
+    }
+
+    @Override
+    protected void writeBlock(BlockLayout blocks, int index) {
+        for (int s = blocks.firstSegment(index), end = blocks.firstSegment(index + 1); s < end; s++)
+            writeBytes(blocks.segmentBytes[s], 0, blocks.segmentBytes[s].length);
+    }
+
+    /**
+     * Copies the given bytes to the buffer, or writes them directly to the
+     * destination when they do not fit in the buffer.
+     */
+    final void writeBytes(byte[] bytes, int offset, int length) {
+        if (count + length > buffer.length)
+            makeRoom(length);
+        if (length > buffer.length) {
+            // Only after the first visit, when makeRoom() has already drained the buffer.
+            sink(bytes, offset, length);
+        } else {
+            System.arraycopy(bytes, offset, buffer, count, length);
+            count += length;
+        }
+    }
+
+    @Override
+    protected String substring(int staticBlockIndex) {
+        return new String(buffer, staticBlockIndex, count - staticBlockIndex, UTF_8);
+    }
+
+    /**
+     * The cuts between segments are at tags, thus never in the middle of
+     * the bytes of a char.
+     */
+    @Override
+    protected String substring(int begin, int end) {
+        return new String(buffer, begin, end - begin, UTF_8);
+    }
+
+    @Override
+    protected int size() {
+        return count;
+    }
+
+    @Override
+    protected long length() {
+        return drained + count;
+    }
+
+    @Override
+    int beginCapture() {
+        captures++;
+        return count;
+    }
+
+    @Override
+    String endCapture(int mark) {
+        captures--;
+        return substring(mark);
+    }
+
+    /**
+     * A policy flushing every N bytes resizes the buffer to N bytes and
+     * flushes the final destination on each drain of the buffer.
+     * It should be set before the first render.
+     */
+    @Override
+    void setFlushPolicy(FlushPolicy flushPolicy) {
+        super.setFlushPolicy(flushPolicy);
+        if (flushPolicy.everyBytes > 0) {
+            bufferSize = Math.max(flushPolicy.everyBytes, MAX_CHAR_BYTES);
+            buffer = new byte[bufferSize];
+            wrapper = null;
+            flushOnDrain = true;
+        }
+    }
+
+    /**
+     * Writes the buffer to the final destination and flushes it.
+     * While the static blocks are not in cache the buffer cannot be drained,
+     * thus it does nothing.
+     */
+    @Override
+    protected void flush() {
+        if (canDrain()) {
+            drain();
+            flushOut();
+        }
+    }
+
+    /**
+     * Flushes the remaining content to the final destination.
+     */
+    @Override
+    protected String readAndReset() {
+        drain();
+        flushOut();
+        drained = 0;
+        if (buffer.length > bufferSize) {
+            buffer = new byte[bufferSize];
+            wrapper = null;
+        }
+        /**
+         * This visitor writes the content to an OutputStream or channel and we
+         * should not consider the value returned by readAndReset().
+         * For that reason we return null as HtmlVisitorPrintStream does.
+         */
+        return null;
+    }
+
+    /**
+     * Encodes a non ASCII code point in UTF-8.
+     * An unpaired surrogate is replaced by '?' as String.getBytes() does.
+     */
+    private void encode(int cp) {
+        if (cp < 0x800) {
+            buffer[count++] = (byte) (0xC0 | (cp >> 6));
+            buffer[count++] = (byte) (0x80 | (cp & 0x3F));
+        } else if (cp <= Character.MAX_VALUE && Character.isSurrogate((char) cp)) {
+            buffer[count++] = REPLACEMENT;
+        } else if (cp < 0x10000) {
+            buffer[count++] = (byte) (0xE0 | (cp >> 12));
+            buffer[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buffer[count++] = (byte) (0x80 | (cp & 0x3F));
+        } else {
+            buffer[count++] = (byte) (0xF0 | (cp >> 18));
+            buffer[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            buffer[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buffer[count++] = (byte) (0x80 | (cp & 0x3F));
+        }
+    }
+
+    /**
+     * While the static blocks are not in cache, or a fragment is being captured,
+     * the buffer grows to keep all the content.
+     * Otherwise, it is drained to the final destination.
+     */
+    private void makeRoom(int length) {
+        if (!canDrain()) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+            wrapper = null;
+        } else {
+            drain();
+            if (flushOnDrain)
+                flushOut();
+        }
+    }
+
+    /**
+     * The buffer can only be drained after the first visit, when it is no longer
+     * the source of the static blocks, and while no fragment is being captured.
+     */
+    final boolean canDrain() {
+        return isCached() && captures == 0;
+    }
+
+    final void flushOut() {
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    final void drain() {
+        if (count > 0) {
+            sink(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Writes the given bytes to the final destination.
+     */
+    void sink(byte[] bytes, int offset, int length) {
+        drained += length;
+        try {
+            if (out != null) {
+                out.write(bytes, offset, length);
+            } else {
+                ByteBuffer src = bytes == buffer ? wrapped() : ByteBuffer.wrap(bytes);
+                src.limit(offset + length).position(offset);
+                while (src.hasRemaining())
+                    channel.write(src);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ByteBuffer wrapped() {
+        if (wrapper == null)
+            wrapper = ByteBuffer.wrap(buffer);
+        wrapper.clear();
+        return wrapper;
+    }
+}
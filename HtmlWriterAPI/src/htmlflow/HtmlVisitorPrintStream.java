@@ -3,6 +3,9 @@ package htmlflow;
 import htmlflow.util.PrintStringBuilder;
 
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 
 
 public class HtmlVisitorPrintStream extends HtmlVisitorCache {
@@ -18,11 +21,40 @@ public class HtmlVisitorPrintStream extends HtmlVisitorCache {
      * field out, which is a PrintStream.
      */
     private PrintStream current;
+    /**
+     * The number of fragments being captured.
+     */
+    private int captures = 0;
 
     public HtmlVisitorPrintStream(PrintStream out, boolean isDynamic) {
-        super(isDynamic);
+        this(out, isDynamic, null);
+    }
+
+    /**
+     * @param charset The charset of the PrintStream out. When not null, the static
+     *                blocks are cached pre-encoded with this charset and written to out
+     *                as raw bytes, skipping the PrintStream char encoding.
+     */
+    public HtmlVisitorPrintStream(PrintStream out, boolean isDynamic, Charset charset) {
+        super(isDynamic, charset);
         this.out = out;
-        this.current = new PrintStringBuilder(out);
+        this.current = newPrintStringBuilder();
+    }
+
+    /**
+     * A PrintStringBuilder to out encoding with the block charset, if any,
+     * which is the charset of out, thus the first write is encoded as the
+     * later writes of the cached blocks.
+     */
+    private PrintStringBuilder newPrintStringBuilder() {
+        Charset charset = blockCharset();
+        if (charset == null)
+            return new PrintStringBuilder(out);
+        try {
+            return new PrintStringBuilder(out, charset);
+        } catch (UnsupportedEncodingException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
@@ -54,6 +86,34 @@ public class HtmlVisitorPrintStream extends HtmlVisitorCache {
         current.print(c);
     }
 
+    /**
+     * Appends the range of text to the PrintStream, which takes a subSequence
+     * of it, unless the PrintStream overrides append(CharSequence, int, int).
+     */
+    @Override
+    protected void write(String text, int begin, int end) {
+        current.append(text, begin, end);
+    }
+
+    @Override
+    protected void writeBlock(BlockLayout blocks, int index) {
+        /**
+         * Cached blocks are only written after the first visit, when current
+         * is already the final PrintStream out.
+         */
+        for (int s = blocks.firstSegment(index), end = blocks.firstSegment(index + 1); s < end; s++) {
+            if(blocks.segmentBytes == null)
+                current.print(blocks.segments[s]);
+            else
+                current.write(blocks.segmentBytes[s], 0, blocks.segmentBytes[s].length);
+        }
+    }
+
+    @Override
+    protected void flush() {
+        current.flush();
+    }
+
     @Override
     protected String substring(int staticBlockIndex) {
         /**
@@ -76,6 +136,36 @@ public class HtmlVisitorPrintStream extends HtmlVisitorCache {
         return ((PrintStringBuilder) current).length();
     }
 
+    /**
+     * After the first visit the content goes straight to the PrintStream
+     * and its length is unknown.
+     */
+    @Override
+    protected long length() {
+        return current instanceof PrintStringBuilder
+            ? size()
+            : -1;
+    }
+
+    /**
+     * After the first visit the output is captured teeing it into a new
+     * PrintStringBuilder until the last endCapture().
+     */
+    @Override
+    int beginCapture() {
+        if (captures++ == 0 && !(current instanceof PrintStringBuilder))
+            current = newPrintStringBuilder();
+        return size();
+    }
+
+    @Override
+    String endCapture(int mark) {
+        String fragment = substring(mark);
+        if (--captures == 0 && isCached())
+            current = out;
+        return fragment;
+    }
+
     @Override
     protected String readAndReset() {
         this.current = out;
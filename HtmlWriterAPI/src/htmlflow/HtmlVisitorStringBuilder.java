@@ -1,5 +1,9 @@
 package htmlflow;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+
 /**
  * This is the implementation of the ElementVisitor (from HtmlApiFaster
  * library) which uses an internal StringBuilder to collect information
@@ -7,16 +11,30 @@ package htmlflow;
  *
  */
 public class HtmlVisitorStringBuilder extends HtmlVisitorCache {
+    /**
+     * The own StringBuilder of this visitor.
+     */
+    private final StringBuilder buffer = new StringBuilder();
     /**
      * The main StringBuilder. Read by the finished() to return the
      * resulting string with the Html content.
+     * While this visitor is attached to a parent view it is the
+     * StringBuilder of the parent visitor.
      */
-    private final StringBuilder sb = new StringBuilder();
+    private StringBuilder sb = buffer;
 
     public HtmlVisitorStringBuilder(boolean isDynamic) {
         super(isDynamic);
     }
 
+    /**
+     * A visitor keeping its static blocks also encoded with the given charset,
+     * so they may be shared with byte oriented visitors of the same view.
+     */
+    HtmlVisitorStringBuilder(boolean isDynamic, Charset blockCharset) {
+        super(isDynamic, blockCharset);
+    }
+
     @Override
     protected void beginTag(String elementName) {
         Tags.appendOpenTag(sb, elementName); // "<elementName"
@@ -46,11 +64,34 @@ public class HtmlVisitorStringBuilder extends HtmlVisitorCache {
         sb.append(c);
     }
 
+    @Override
+    protected void write(String text, int begin, int end) {
+        sb.append(text, begin, end);
+    }
+
+    @Override
+    boolean attachOutput(HtmlVisitorCache parent) {
+        if (!(parent instanceof HtmlVisitorStringBuilder))
+            return false;
+        sb = ((HtmlVisitorStringBuilder) parent).sb;
+        return true;
+    }
+
+    @Override
+    void detachOutput() {
+        sb = buffer;
+    }
+
     @Override
     protected String substring(int staticBlockIndex) {
         return sb.substring(staticBlockIndex);
     }
 
+    @Override
+    protected String substring(int begin, int end) {
+        return sb.substring(begin, end);
+    }
+
     @Override
     protected int size() {
         return sb.length();
@@ -63,4 +104,19 @@ public class HtmlVisitorStringBuilder extends HtmlVisitorCache {
         return data;
     }
 
+    /**
+     * Copies the content to out with no intermediate String.
+     * Yet, some Appendable implementations, such as Writer, may still
+     * build a String for a CharSequence.
+     */
+    @Override
+    protected void readAndReset(Appendable out) {
+        try {
+            out.append(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sb.setLength(0);
+    }
+
 }
\ No newline at end of file
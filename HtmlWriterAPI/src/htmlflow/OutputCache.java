@@ -0,0 +1,189 @@
+package htmlflow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An output cache of the whole pages of a thread-safe DynamicHtml, keyed
+ * by a function of the model, which is created by
+ * {@link DynamicHtml#outputCache(Function, int, long, TimeUnit)}.
+ *
+ * A page is rendered once per key and then its String and its UTF-8 bytes
+ * are reused until its time to live expires or it is evicted, which
+ * happens to the oldest pages when the cache exceeds its max number of pages.
+ * Concurrent renders of a missing key wait for a single render of the view,
+ * thus the expiration of a popular page does not trigger a render per request.
+ *
+ * @param <T> The type of domain object bound to the view.
+ */
+public final class OutputCache<T> {
+
+    private final DynamicHtml<T> view;
+    private final Function<? super T, ?> key;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<Object, CompletableFuture<Page>> pages = new ConcurrentHashMap<>();
+    /**
+     * The rendered pages by order of insertion, which is the order of eviction.
+     * It is guarded by its own lock and it only holds pages that are still in
+     * pages, thus it never outgrows the cache.
+     */
+    private final LinkedHashMap<Object, CompletableFuture<Page>> insertions = new LinkedHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    OutputCache(DynamicHtml<T> view, Function<? super T, ?> key, int maxEntries, long ttl, TimeUnit unit) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("The max number of pages must be positive!");
+        this.view = view;
+        this.key = key;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * Returns the HTML of the page for the key of model.
+     */
+    public String render(T model) {
+        return page(model).html;
+    }
+
+    /**
+     * Writes the HTML of the page for the key of model to out, encoded in UTF-8.
+     */
+    public void write(T model, OutputStream out) {
+        byte[] bytes = page(model).bytes;
+        try {
+            out.write(bytes, 0, bytes.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return pages.size();
+    }
+
+    public void invalidate(T model) {
+        Object k = key.apply(model);
+        CompletableFuture<Page> page = pages.remove(k);
+        if (page != null)
+            forget(k, page);
+    }
+
+    public void clear() {
+        synchronized (insertions) {
+            pages.clear();
+            insertions.clear();
+        }
+    }
+
+    private Page page(T model) {
+        Object k = key.apply(model);
+        while (true) {
+            CompletableFuture<Page> cached = pages.get(k);
+            if (cached == null) {
+                CompletableFuture<Page> rendering = new CompletableFuture<>();
+                cached = pages.putIfAbsent(k, rendering);
+                if (cached == null) {
+                    misses.increment();
+                    return render(k, model, rendering);
+                }
+            }
+            Page page = join(cached);
+            if (page == null || isExpired(page)) {
+                // A failed render, or an expired page, is removed by the first thread that finds it.
+                if (pages.remove(k, cached))
+                    forget(k, cached);
+                continue;
+            }
+            hits.increment();
+            return page;
+        }
+    }
+
+    private Page render(Object k, T model, CompletableFuture<Page> rendering) {
+        Page page;
+        try {
+            page = new Page(view.render(model));
+        } catch (RuntimeException e) {
+            pages.remove(k, rendering);
+            rendering.complete(null);
+            throw e;
+        }
+        rendering.complete(page);
+        synchronized (insertions) {
+            if (pages.get(k) == rendering) {
+                insertions.remove(k);
+                insertions.put(k, rendering);
+                evict();
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Removes the eldest pages while the cache exceeds its max number of pages.
+     * The caller must hold the lock of insertions.
+     */
+    private void evict() {
+        Iterator<Map.Entry<Object, CompletableFuture<Page>>> eldest = insertions.entrySet().iterator();
+        while (pages.size() > maxEntries && eldest.hasNext()) {
+            Map.Entry<Object, CompletableFuture<Page>> entry = eldest.next();
+            pages.remove(entry.getKey(), entry.getValue());
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Removes the insertion of a page that has left the cache.
+     */
+    private void forget(Object k, CompletableFuture<Page> page) {
+        synchronized (insertions) {
+            insertions.remove(k, page);
+        }
+    }
+
+    private boolean isExpired(Page page) {
+        return ttlNanos > 0 && System.nanoTime() - page.created > ttlNanos;
+    }
+
+    private static Page join(CompletableFuture<Page> page) {
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            return null;
+        }
+    }
+
+    private static final class Page {
+        final String html;
+        final byte[] bytes;
+        final long created = System.nanoTime();
+
+        Page(String html) {
+            this.html = html;
+            this.bytes = html.getBytes(UTF_8);
+        }
+    }
+}
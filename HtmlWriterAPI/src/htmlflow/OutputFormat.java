@@ -0,0 +1,98 @@
+package htmlflow;
+
+/**
+ * Defines the layout of the HTML written by a view.
+ * The default INDENTED format writes each element and text on its own line
+ * indented with tabs. The COMPACT format writes no newlines nor indentation,
+ * which may save a large share of the bytes of deeply nested pages.
+ * Both may further minimize the quotes of attributes and the whitespace of texts.
+ *
+ * The format applies to the whole output of a view, including its cached
+ * static blocks, yet not to its partial views, which keep their own format.
+ *
+ * Instances are immutable, e.g. {@code OutputFormat.COMPACT.unquotedAttributes().collapseWhitespace()}.
+ */
+public final class OutputFormat {
+
+    public static final OutputFormat INDENTED = new OutputFormat(true, false, false);
+
+    public static final OutputFormat COMPACT = new OutputFormat(false, false, false);
+
+    final boolean isIndented;
+    final boolean isUnquotedAttributes;
+    final boolean isCollapseWhitespace;
+
+    private OutputFormat(boolean isIndented, boolean isUnquotedAttributes, boolean isCollapseWhitespace) {
+        this.isIndented = isIndented;
+        this.isUnquotedAttributes = isUnquotedAttributes;
+        this.isCollapseWhitespace = isCollapseWhitespace;
+    }
+
+    /**
+     * Also writes attribute values without quotes, whenever the value is not
+     * empty and it has no whitespace nor any of the chars {@code " ' = < > `}.
+     */
+    public OutputFormat unquotedAttributes() {
+        return new OutputFormat(isIndented, true, isCollapseWhitespace);
+    }
+
+    /**
+     * Also replaces each run of whitespace of texts by a single space.
+     * It should not be used on views with whitespace sensitive elements,
+     * such as pre or textarea.
+     */
+    public OutputFormat collapseWhitespace() {
+        return new OutputFormat(isIndented, isUnquotedAttributes, true);
+    }
+
+    /**
+     * Checks if an attribute value may be written without quotes.
+     */
+    static boolean isUnquotable(String value) {
+        int length = value.length();
+        if (length == 0)
+            return false;
+        for (int i = 0; i < length; i++) {
+            switch (value.charAt(i)) {
+                case ' ': case '\t': case '\n': case '\f': case '\r':
+                case '"': case '\'': case '=': case '<': case '>': case '`':
+                    return false;
+                default:
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces each run of whitespace of text by a single space.
+     * Returns the same text when there is nothing to replace.
+     */
+    static String collapse(String text) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)
+                && (c != ' ' || (i + 1 < length && Character.isWhitespace(text.charAt(i + 1)))))
+                break;
+            i++;
+        }
+        if (i == length)
+            return text;
+        StringBuilder sb = new StringBuilder(length);
+        sb.append(text, 0, i);
+        boolean isSpace = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (!isSpace)
+                    sb.append(' ');
+                isSpace = true;
+            } else {
+                sb.append(c);
+                isSpace = false;
+            }
+        }
+        return sb.toString();
+    }
+}
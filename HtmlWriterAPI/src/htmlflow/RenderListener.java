@@ -0,0 +1,42 @@
+package htmlflow;
+
+/**
+ * Receives the metrics of each render of a view, e.g. to feed the counters
+ * of an {@link HtmlViewStats} or of any other metrics library.
+ * It is called on the thread of the render, thus implementations must be
+ * thread-safe and cheap, because they add to the latency of every render.
+ */
+public interface RenderListener {
+
+    /**
+     * Called at the end of each render.
+     *
+     * @param nanos the duration of the render.
+     * @param cachedLength the length of the static blocks copied from cache,
+     *                     which is 0 on the first render.
+     * @param totalLength the length of the whole output, or -1 if unknown.
+     *                    Lengths are in bytes for visitors writing to an
+     *                    OutputStream, or to a PrintStream with a charset, and
+     *                    in chars otherwise.
+     */
+    default void onRender(long nanos, long cachedLength, long totalLength) {
+    }
+
+    /**
+     * Called at the end of a render that has built the cache of static blocks,
+     * before onRender().
+     *
+     * @param nanos the duration of that render.
+     * @param staticBlocks the number of static blocks collected.
+     */
+    default void onCacheBuilt(long nanos, int staticBlocks) {
+    }
+
+    /**
+     * Called when a partial view added to the view is rendered.
+     *
+     * @param nanos the duration of the render of the partial view.
+     */
+    default void onPartial(long nanos) {
+    }
+}
@@ -0,0 +1,190 @@
+package htmlflow;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An immutable copy of the static blocks of a view, i.e. the HTML of each
+ * block and the depth and begin tag state where it ends, which may be
+ * preloaded into another instance of the same view, e.g. by the code
+ * generated at build time, so its first render needs no visit of the
+ * static elements to fill the cache.
+ *
+ * They may also be saved to a snapshot file, which is loaded by other
+ * replicas of the same application on startup instead of rendering each view.
+ * A snapshot is bound to a fingerprint of the templates, and it is ignored
+ * when the fingerprint differs.
+ * The fingerprint is up to the caller, e.g. the version of the application
+ * or a hash of the template sources, and it must change whenever a template
+ * changes, because a snapshot cannot tell that its HTML is stale otherwise.
+ */
+public final class StaticBlocks {
+
+    /**
+     * The first bytes of a snapshot file, i.e. "HFSB".
+     */
+    private static final int MAGIC = 0x48465342;
+    private static final int VERSION = 1;
+    /**
+     * The bytes of the magic number, the version, an empty fingerprint,
+     * no blocks and the CRC32.
+     */
+    private static final int MIN_SNAPSHOT_BYTES = 20;
+    /**
+     * The bytes of a block with empty HTML, i.e. its depth, closed flag and length.
+     */
+    private static final int MIN_BLOCK_BYTES = 9;
+
+    private final String[] html;
+    private final int[] depths;
+    private final boolean[] closed;
+
+    public StaticBlocks(String[] html, int[] depths, boolean[] closed) {
+        if (html.length != depths.length || html.length != closed.length)
+            throw new IllegalArgumentException("The html, depths and closed arrays must have the same length!");
+        this.html = html.clone();
+        this.depths = depths.clone();
+        this.closed = closed.clone();
+    }
+
+    StaticBlocks(BlockLayout blocks) {
+        int size = blocks.size();
+        this.html = new String[size];
+        this.depths = new int[size];
+        this.closed = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            html[i] = blocks.html(i);
+            depths[i] = blocks.depth(i);
+            closed[i] = blocks.isClosed(i);
+        }
+    }
+
+    public int size() {
+        return html.length;
+    }
+
+    public String html(int index) {
+        return html[index];
+    }
+
+    public int depth(int index) {
+        return depths[index];
+    }
+
+    public boolean isClosed(int index) {
+        return closed[index];
+    }
+
+    /**
+     * Writes these blocks to a snapshot file bound to the given fingerprint.
+     * The file is written to a temporary file first and then moved, thus
+     * replicas loading it never see a partial snapshot.
+     * The layout is the magic number, the version, the fingerprint, the number
+     * of blocks and, for each block, its depth, its closed flag and its HTML
+     * in UTF-8, followed by the CRC32 of all previous bytes.
+     */
+    public void write(Path file, String fingerprint) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(os, crc));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeBytes(out, fingerprint.getBytes(UTF_8));
+                out.writeInt(html.length);
+                for (int i = 0; i < html.length; i++) {
+                    out.writeInt(depths[i]);
+                    out.writeBoolean(closed[i]);
+                    writeBytes(out, html[i].getBytes(UTF_8));
+                }
+                out.flush();
+                new DataOutputStream(os).writeInt((int) crc.getValue());
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads the blocks of a snapshot file through a memory-mapped channel.
+     * The CRC32 of the whole file is verified before any of its lengths is
+     * used, and each length is checked against the remaining bytes, so a
+     * corrupted file never allocates more than its own size.
+     * The HTML of the blocks is decoded into Strings on the heap, which a
+     * preloaded view interns in the BlockStore, as the blocks of any view.
+     *
+     * @return the blocks of the snapshot, or null if the file does not
+     *         exist or it was written with another fingerprint.
+     * @throws IOException if the file is not a valid snapshot.
+     */
+    public static StaticBlocks read(Path file, String fingerprint) throws IOException {
+        if (!Files.exists(file))
+            return null;
+        MappedByteBuffer map;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (map.limit() < MIN_SNAPSHOT_BYTES)
+            throw new IOException("The snapshot " + file + " is truncated!");
+        if (map.getInt() != MAGIC || map.getInt() != VERSION)
+            throw new IOException("The file " + file + " is not a snapshot of static blocks!");
+        int end = map.limit() - 4;
+        CRC32 crc = new CRC32();
+        ByteBuffer content = map.duplicate();
+        content.position(0).limit(end);
+        crc.update(content);
+        if (map.getInt(end) != (int) crc.getValue())
+            throw new IOException("The snapshot " + file + " is corrupted!");
+        map.limit(end);
+        try {
+            if (!fingerprint.equals(new String(readBytes(map, file), UTF_8)))
+                return null;
+            int size = map.getInt();
+            if (size < 0 || size > map.remaining() / MIN_BLOCK_BYTES)
+                throw new IOException("The snapshot " + file + " is corrupted!");
+            String[] html = new String[size];
+            int[] depths = new int[size];
+            boolean[] closed = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                depths[i] = map.getInt();
+                closed[i] = map.get() != 0;
+                html[i] = new String(readBytes(map, file), UTF_8);
+            }
+            if (map.hasRemaining())
+                throw new IOException("The snapshot " + file + " is corrupted!");
+            return new StaticBlocks(html, depths, closed);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("The snapshot " + file + " is truncated!", e);
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer map, Path file) throws IOException {
+        int length = map.getInt();
+        if (length < 0 || length > map.remaining())
+            throw new IOException("The snapshot " + file + " is corrupted!");
+        byte[] bytes = new byte[length];
+        map.get(bytes);
+        return bytes;
+    }
+}
@@ -1,11 +1,18 @@
 package htmlflow;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
  * Static Html view.
+ * Its output never changes, thus once the first render is finished the
+ * template is no longer run and the output is frozen: render() returns the
+ * same immutable String and write(OutputStream) writes the same byte array.
+ * Frozen renders notify the render listener with the whole output as cached.
  *
  */
 public class StaticHtml extends HtmlView<Object> {
@@ -15,6 +22,14 @@ public class StaticHtml extends HtmlView<Object> {
              "supported or you should use a dynamic view instead!";
 
     private final Consumer<StaticHtml> template;
+    /**
+     * The output of render() once frozen, or null.
+     */
+    private volatile String frozen;
+    /**
+     * The output of write(OutputStream) once frozen, or null.
+     */
+    private volatile byte[] frozenBytes;
 
     public static StaticHtml view(PrintStream out, Consumer<StaticHtml> template){
         return new StaticHtml(out, template);
@@ -64,9 +79,20 @@ public class StaticHtml extends HtmlView<Object> {
 
     @Override
     public final String render() {
-        if(template != null)
-            template.accept(this);
-        return getVisitor().finished();
+        RenderListener listener = renderListener();
+        long start = listener == null ? 0 : System.nanoTime();
+        String html = frozen;
+        if(html != null) {
+            if(listener != null)
+                listener.onRender(System.nanoTime() - start, html.length(), html.length());
+            return html;
+        }
+        getVisitor().beginRender();
+        resolve();
+        html = finish();
+        if(html != null)
+            frozen = singleBlockHtml();
+        return html;
 
     }
 
@@ -77,9 +103,50 @@ public class StaticHtml extends HtmlView<Object> {
 
     @Override
     public final void write() {
-        if(template != null)
-            template.accept(this);
-        getVisitor().finished();
+        getVisitor().beginRender();
+        resolve();
+        finish();
+    }
+
+    /**
+     * Writes the HTML of a thread-safe view to out, encoded in UTF-8,
+     * through a visitor borrowed just for this call.
+     */
+    public final void write(OutputStream out) {
+        write(out, null);
+    }
+
+    /**
+     * Writes the HTML of a thread-safe view to out, encoded in UTF-8 and
+     * compressed in the given format, or not compressed if it is null.
+     * Only the uncompressed output is frozen.
+     */
+    public final void write(OutputStream out, Compression compression) {
+        RenderListener listener = renderListener();
+        long start = listener == null ? 0 : System.nanoTime();
+        byte[] bytes = compression == null ? frozenBytes : null;
+        if(bytes != null) {
+            try {
+                out.write(bytes);
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if(listener != null)
+                listener.onRender(System.nanoTime() - start, bytes.length, bytes.length);
+            return;
+        }
+        bindOutputStream(out, compression);
+        getVisitor().beginRender();
+        try {
+            resolve();
+        } catch (RuntimeException e) {
+            discardVisitor();
+            throw e;
+        }
+        finish();
+        if(compression == null)
+            frozenBytes = singleBlockBytes();
     }
 
     @Override
@@ -87,6 +154,26 @@ public class StaticHtml extends HtmlView<Object> {
         throw new UnsupportedOperationException(WRONG_USE_OF_RENDER_WITH_MODEL);
     }
 
+    /**
+     * Runs the template until the whole output is a single static block
+     * in cache, which is then written by finish() with no further visits.
+     */
+    @Override
+    final void resolve() {
+        if(template != null && !getVisitor().isSingleBlock())
+            template.accept(this);
+    }
+
+    @Override
+    final void resolveDryRun() {
+        resolve();
+    }
+
+    @Override
+    final void resolve(Object model) {
+        throw new UnsupportedOperationException(WRONG_USE_OF_RENDER_WITH_MODEL);
+    }
+
     @Override
     protected final HtmlView<Object> clone(Supplier<HtmlVisitorCache> visitorSupplier, boolean threadSafe) {
         return new StaticHtml(visitorSupplier, threadSafe, template);
@@ -5,17 +5,46 @@ import java.io.PrintStream;
 /**
  */
 class Tags {
-    private static final char BEGIN_TAG = '<';
-    private static final String BEGIN_CLOSE_TAG = "</";
-    private static final String BEGIN_COMMENT_TAG = "<!-- ";
-    private static final String END_COMMENT_TAG = " -->";
-    private static final String ATTRIBUTE_MID = "=\"";
+    static final char BEGIN_TAG = '<';
+    static final String BEGIN_CLOSE_TAG = "</";
+    static final String BEGIN_COMMENT_TAG = "<!-- ";
+    static final String END_COMMENT_TAG = " -->";
+    static final String ATTRIBUTE_MID = "=\"";
+    static final char EQUALS = '=';
     static final char FINISH_TAG = '>';
-    private static final char SPACE = ' ';
-    private static final char QUOTATION = '"';
+    static final char SPACE = ' ';
+    static final char QUOTATION = '"';
 
     private Tags() { }
 
+    /**
+     * Returns the entity replacing c in texts and attribute values, or null
+     * if c needs no escaping.
+     */
+    static String entity(char c) {
+        switch (c) {
+            case '<': return "&lt;";
+            case '>': return "&gt;";
+            case '&': return "&amp;";
+            case '"': return "&quot;";
+            case '\'': return "&#39;";
+            default: return null;
+        }
+    }
+
+    /**
+     * Returns the index of the first char of value that needs escaping, or -1.
+     */
+    static int indexOfEscapable(String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '<' || c == '>' || c == '&' || c == '"' || c == '\'')
+                return i;
+        }
+        return -1;
+    }
+
     static void printOpenTag(PrintStream out, String elementName) {
         out.print(BEGIN_TAG);
         out.print(elementName);
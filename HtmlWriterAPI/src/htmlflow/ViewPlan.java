@@ -0,0 +1,202 @@
+package htmlflow;
+
+import org.xmlet.htmlapifaster.Element;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A compiled plan of a DynamicHtml, i.e. the sequence of its dynamic sections
+ * recorded while its binder runs, which are the ones added through
+ * {@link DynamicHtml#dynamic(Element, BiConsumer)}.
+ * Once every dynamic block of the view is a recorded section, later renders
+ * replay the cached static blocks interleaved with those sections, without
+ * running the binder again and thus without walking the static elements.
+ *
+ * Each HtmlVisitorCache keeps its own plan, because the recorded elements
+ * are bound to the visitor that has visited them.
+ *
+ * The independent sections added through
+ * {@link DynamicHtml#dynamic(Element, HtmlView, Function, Executor)} are
+ * all forked at the begin of a replay and then joined in document order,
+ * thus the latency of a replay is the max of those sections, rather than
+ * their sum. If a section fails, the forked sections not yet joined are
+ * cancelled, or awaited if already running, before the failure is thrown.
+ *
+ * @param <T> The type of domain object bound to the view.
+ */
+final class ViewPlan<T> {
+
+    private final List<Section<?, T>> sections = new ArrayList<>();
+    private boolean isRecording = false;
+    private boolean isReady = false;
+    /**
+     * A plan is disabled if a render of the view runs a dynamic block that
+     * is not a recorded section, e.g. a dynamic() of HtmlApiFaster.
+     */
+    private boolean isDisabled = false;
+    /**
+     * The model of the current render.
+     */
+    T model;
+
+    boolean isReady() {
+        return isReady;
+    }
+
+    void beginRecording() {
+        if (!isDisabled) {
+            sections.clear();
+            isRecording = true;
+        }
+    }
+
+    <E extends Element> void add(E element, BiConsumer<E, T> section) {
+        if (isRecording)
+            sections.add(new Section<>(element, section));
+    }
+
+    <U> void add(HtmlView<U> partial, Function<? super T, ? extends U> model, int depth, Executor executor) {
+        if (isRecording)
+            sections.add(new Independent<>(partial, model, depth, executor));
+    }
+
+    /**
+     * @param dynamicBlocks The number of dynamic blocks visited since beginRecording().
+     */
+    void endRecording(int dynamicBlocks) {
+        if (isRecording) {
+            isRecording = false;
+            isReady = sections.size() == dynamicBlocks;
+            isDisabled = !isReady;
+            if (isDisabled)
+                sections.clear();
+        }
+    }
+
+    /**
+     * Writes the static blocks from cache of the visitor interleaved with
+     * the dynamic sections. The last static block is written by finished().
+     */
+    void replay(HtmlVisitorCache visitor) {
+        int joined = 0;
+        try {
+            for (Section<?, T> section : sections)
+                section.fork(model);
+            for (Section<?, T> section : sections) {
+                joined++;
+                visitor.visitOpenDynamic();
+                section.accept(visitor, model);
+                visitor.visitCloseDynamic();
+            }
+        } catch (RuntimeException e) {
+            for (int i = joined; i < sections.size(); i++)
+                sections.get(i).cancel();
+            throw e;
+        }
+    }
+
+    private static class Section<E extends Element, T> {
+        final E element;
+        final BiConsumer<E, T> consumer;
+
+        Section(E element, BiConsumer<E, T> consumer) {
+            this.element = element;
+            this.consumer = consumer;
+        }
+
+        /**
+         * Starts the work of this section ahead of its turn, if it is independent.
+         */
+        void fork(T model) {
+        }
+
+        /**
+         * Stops the work forked for this section, which is not joined due to a failure.
+         */
+        void cancel() {
+        }
+
+        void accept(HtmlVisitorCache visitor, T model) {
+            consumer.accept(element, model);
+        }
+    }
+
+    /**
+     * A section whose content is the HTML of a thread-safe partial view,
+     * which is rendered on the executor at the depth recorded for the section.
+     */
+    private static class Independent<U, T> extends Section<Element, T> {
+        final HtmlView<U> partial;
+        final Function<? super T, ? extends U> model;
+        final int depth;
+        final Executor executor;
+        /**
+         * The HTML of the current replay, which is only touched by the
+         * thread of the replay.
+         */
+        private CompletableFuture<String> html;
+        /**
+         * The task of the current replay, which completes once it has
+         * rendered the HTML or found it cancelled.
+         */
+        private CompletableFuture<Void> task;
+
+        Independent(HtmlView<U> partial, Function<? super T, ? extends U> model, int depth, Executor executor) {
+            super(null, null);
+            this.partial = partial;
+            this.model = model;
+            this.depth = depth;
+            this.executor = executor;
+        }
+
+        @Override
+        void fork(T pageModel) {
+            CompletableFuture<String> forked = new CompletableFuture<>();
+            task = CompletableFuture.runAsync(() -> {
+                if (forked.isDone())
+                    return;
+                try {
+                    forked.complete(partial.renderChunk(Collections.singletonList(model.apply(pageModel)), depth));
+                } catch (RuntimeException e) {
+                    forked.completeExceptionally(e);
+                }
+            }, executor);
+            html = forked;
+        }
+
+        @Override
+        void cancel() {
+            CompletableFuture<String> forked = html;
+            html = null;
+            if (forked == null)
+                return;
+            forked.cancel(false);
+            try {
+                task.join();
+            } catch (CompletionException e) {
+                // The failure of this section is superseded by the one being thrown.
+            }
+        }
+
+        @Override
+        void accept(HtmlVisitorCache visitor, T model) {
+            CompletableFuture<String> forked = html;
+            html = null;
+            visitor.closeBeginTag();
+            try {
+                visitor.write(forked.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw e;
+            }
+        }
+    }
+}
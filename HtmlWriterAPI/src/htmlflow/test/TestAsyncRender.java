@@ -0,0 +1,99 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static htmlflow.test.views.HtmlItems.itemsView;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestAsyncRender {
+
+    @Test
+    public void testWriteAsyncEmitsHeadBeforeModel() {
+        DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) itemsView().threadSafe();
+        List<String> items = Arrays.asList("a", "b");
+        String expected = itemsView().render(items);
+        /*
+         * The first write fills the cache of static blocks.
+         */
+        view.write(items, new ByteArrayOutputStream());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompletableFuture<List<String>> model = new CompletableFuture<>();
+        CompletableFuture<Void> done = view.writeAsync(model, out);
+        String head = new String(out.toByteArray(), UTF_8);
+        assertFalse(done.isDone());
+        assertTrue(head.length() > 0);
+        assertTrue(expected.startsWith(head));
+
+        model.complete(items);
+        done.join();
+        assertEquals(expected, new String(out.toByteArray(), UTF_8));
+    }
+
+    @Test
+    public void testWriteAsyncOfFailedModel() {
+        DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) itemsView().threadSafe();
+        view.write(Arrays.asList("a"), new ByteArrayOutputStream());
+        CompletableFuture<List<String>> model = new CompletableFuture<>();
+        CompletableFuture<Void> done = view.writeAsync(model, new ByteArrayOutputStream());
+        assertEquals(1, view.busyVisitors());
+        IllegalStateException failure = new IllegalStateException();
+        model.completeExceptionally(failure);
+        try {
+            done.join();
+            fail("The failure of the model should be thrown!");
+        } catch (CompletionException e) {
+            assertEquals(failure, e.getCause());
+        }
+        assertEquals(0, view.busyVisitors());
+    }
+
+    @Test
+    public void testRenderAsync() throws Exception {
+        DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) itemsView().threadSafe();
+        DynamicHtml<List<String>> expected = itemsView();
+        List<CompletableFuture<List<String>>> models = new ArrayList<>();
+        List<CompletableFuture<String>> pages = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            CompletableFuture<List<String>> model = new CompletableFuture<>();
+            models.add(model);
+            pages.add(view.renderAsync(model));
+        }
+        /*
+         * The models are completed at the same time by several threads,
+         * which render concurrently.
+         */
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < models.size(); i++) {
+                CompletableFuture<List<String>> model = models.get(i);
+                List<String> items = Arrays.asList("a" + i, "b" + i);
+                pool.submit(() -> model.complete(items));
+            }
+            for (int i = 0; i < pages.size(); i++)
+                assertEquals(expected.render(Arrays.asList("a" + i, "b" + i)), pages.get(i).get(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWrongUseOfRenderAsyncOnViewNotThreadSafe() {
+        itemsView().renderAsync(CompletableFuture.completedFuture(Arrays.asList("a")));
+    }
+}
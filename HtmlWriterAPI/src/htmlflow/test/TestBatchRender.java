@@ -0,0 +1,90 @@
+package htmlflow.test;
+
+import htmlflow.BatchReport;
+import htmlflow.DynamicHtml;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static htmlflow.test.views.HtmlEmails.emailView;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestBatchRender {
+
+    private static final int MODELS = 2000;
+
+    @Test
+    public void testRenderAll() {
+        DynamicHtml<Integer> reference = emailView();
+        StringWriter[] sinks = new StringWriter[MODELS];
+        BatchReport report = emailView().renderAll(
+            IntStream.range(0, MODELS).boxed(),
+            id -> sinks[id] = new StringWriter());
+        assertEquals(MODELS, report.renders());
+        assertTrue(report.rendersPerSecond() > 0);
+        for (int i = 0; i < MODELS; i++)
+            assertEquals(reference.render(i), sinks[i].toString());
+    }
+
+    @Test
+    public void testRenderAllOnPool() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            DynamicHtml<Integer> view = (DynamicHtml<Integer>) emailView().threadSafe();
+            StringBuilder[] sinks = new StringBuilder[MODELS];
+            BatchReport report = view.renderAll(
+                IntStream.range(0, MODELS).boxed(),
+                id -> sinks[id] = new StringBuilder(),
+                pool);
+            assertEquals(MODELS, report.renders());
+            assertEquals(view.render(7), sinks[7].toString());
+            assertEquals(view.render(MODELS - 1), sinks[MODELS - 1].toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The sink of a failed render is closed as the others, and the visitor
+     * of the failed render is not kept busy.
+     */
+    @Test
+    public void testRenderAllClosesSinksOnFailure() {
+        DynamicHtml<Integer> view = (DynamicHtml<Integer>) DynamicHtml.<Integer>view((v, id) -> v
+            .div()
+                .of(div -> v.dynamic(div, (elem, model) -> {
+                    if (model == MODELS / 2)
+                        throw new IllegalStateException("No customer " + model);
+                    elem.text("Dear customer " + model);
+                }))
+            .__()).threadSafe();
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            view.renderAll(IntStream.range(0, MODELS).boxed(), id -> {
+                opened.incrementAndGet();
+                return new StringWriter() {
+                    @Override
+                    public void close() {
+                        closed.incrementAndGet();
+                    }
+                };
+            }, pool);
+            fail("The failed render should be thrown!");
+        } catch (IllegalStateException e) {
+            pool.shutdown();
+            assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+            assertEquals(opened.get(), closed.get());
+            assertEquals(0, view.busyVisitors());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package htmlflow.test;
+
+import htmlflow.BlockStore;
+import htmlflow.StaticHtml;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestBlockStore {
+
+    private static StaticHtml page(String title) {
+        return StaticHtml.view(v -> v
+            .html()
+                .head()
+                    .title().text(title).__()
+                .__()
+                .body()
+                    .div().attrId("footer").text("Footer").__()
+                .__()
+            .__());
+    }
+
+    /**
+     * A page with a common head and footer around a content of its own.
+     */
+    private static StaticHtml article(String content) {
+        return StaticHtml.view(v -> v
+            .html()
+                .head()
+                    .title().text("The articles of the store").__()
+                .__()
+                .body()
+                    .div().attrClass("content").text(content).__()
+                    .div().attrId("footer").text("Shared footer of all articles").__()
+                .__()
+            .__());
+    }
+
+    private static String element(String html, String begin, String end) {
+        int from = html.indexOf(begin);
+        return html.substring(from, html.indexOf(end, from) + end.length());
+    }
+
+    @Test
+    public void testSharedBlocks() {
+        BlockStore store = BlockStore.shared();
+        StaticHtml shared = page("Shared");
+        String first = shared.render();
+        long hits = store.hits();
+        long saved = store.savedBytes();
+        StaticHtml other = page("Shared");
+        assertEquals(first, other.render());
+        assertTrue(store.hits() > hits);
+        assertTrue(store.savedBytes() - saved >= first.length());
+
+        StaticHtml distinct = page("Distinct");
+        assertFalse(first.equals(distinct.render()));
+        assertEquals(first, shared.render());
+    }
+
+    @Test
+    public void testSharedHeadAndFooter() {
+        BlockStore store = BlockStore.shared();
+        StaticHtml news = article("The news of today");
+        String first = news.render();
+        long saved = store.savedBytes();
+        StaticHtml sports = article("The results of the games");
+        String second = sports.render();
+        long savedBySecond = store.savedBytes() - saved;
+        String head = element(second, "<head>", "</head>");
+        String footer = element(second, "<div id=\"footer\">", "</div>");
+        assertTrue(savedBySecond >= head.length() + footer.length());
+        assertEquals(first, news.render());
+    }
+}
@@ -0,0 +1,153 @@
+package htmlflow.test;
+
+import htmlflow.Compression;
+import htmlflow.DynamicHtml;
+import htmlflow.FlushPolicy;
+import htmlflow.HtmlView;
+import htmlflow.HtmlWriter;
+import htmlflow.StaticHtml;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestCompressedOutput {
+
+    private static final List<List<String>> MODELS = Arrays.asList(
+        Arrays.asList("one", "two", "three"),
+        Arrays.asList("four"),
+        Arrays.asList("five", "six"));
+
+    private static DynamicHtml<List<String>> itemsView() {
+        return DynamicHtml.view((view, items) -> view
+            .html()
+                .head()
+                    .title().text("Items").__()
+                .__()
+                .body()
+                    .div().attrClass("header").text("A static header repeated on every page").__()
+                    .ul()
+                        .dynamic(ul -> items.forEach(item -> ul.li().text(item).__()))
+                    .__()
+                    .div().attrClass("footer").text("A static footer repeated on every page").__()
+                .__()
+            .__());
+    }
+
+    /**
+     * A view flushing at the end of a dynamic section, which is followed by
+     * a static block and by another section repeating the same dynamic text.
+     */
+    private static DynamicHtml<List<String>> flushedView() {
+        return DynamicHtml.view((view, items) -> view
+            .html()
+                .body()
+                    .ul()
+                        .dynamic(ul -> {
+                            items.forEach(item -> ul.li().text("The dynamic item " + item).__());
+                            view.flush();
+                        })
+                    .__()
+                    .div().attrClass("middle").text("A static block between the dynamic sections").__()
+                    .ul()
+                        .dynamic(ul -> items.forEach(item -> ul.li().text("The dynamic item " + item).__()))
+                    .__()
+                .__()
+            .__());
+    }
+
+    private static String inflate(byte[] bytes, Compression compression) throws IOException {
+        InputStream in = compression == Compression.GZIP
+            ? new GZIPInputStream(new ByteArrayInputStream(bytes))
+            : new InflaterInputStream(new ByteArrayInputStream(bytes));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int n; (n = in.read(buffer)) > 0; )
+            out.write(buffer, 0, n);
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    @Test
+    public void testCompressedOutputStream() throws IOException {
+        DynamicHtml<List<String>> view = itemsView();
+        for (Compression compression : Compression.values()) {
+            ByteArrayOutputStream mem = new ByteArrayOutputStream();
+            HtmlWriter<List<String>> writer = view.setOutputStream(mem, compression);
+            for (List<String> items : MODELS) {
+                mem.reset();
+                writer.write(items);
+                assertEquals(view.render(items), inflate(mem.toByteArray(), compression));
+            }
+        }
+    }
+
+    @Test
+    public void testThreadSafeCompressedWrites() throws IOException {
+        DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) itemsView().threadSafe();
+        for (int i = 0; i < 2; i++) {
+            for (List<String> items : MODELS) {
+                for (Compression compression : Compression.values()) {
+                    ByteArrayOutputStream mem = new ByteArrayOutputStream();
+                    view.write(items, mem, compression);
+                    String html = view.render(items);
+                    assertEquals(html, inflate(mem.toByteArray(), compression));
+                    assertTrue(mem.size() < html.length());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCompressedStaticView() throws IOException {
+        StaticHtml view = (StaticHtml) StaticHtml
+            .view(v -> v.div().text("Static").__())
+            .threadSafe();
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream mem = new ByteArrayOutputStream();
+            view.write(mem, Compression.GZIP);
+            assertEquals(view.render(), inflate(mem.toByteArray(), Compression.GZIP));
+        }
+    }
+
+    @Test
+    public void testFlushesInDynamicContent() throws IOException {
+        DynamicHtml<List<String>> view = flushedView();
+        for (Compression compression : Compression.values()) {
+            ByteArrayOutputStream mem = new ByteArrayOutputStream();
+            HtmlWriter<List<String>> writer = view.setOutputStream(mem, compression);
+            for (int i = 0; i < 2; i++) {
+                for (List<String> items : MODELS) {
+                    mem.reset();
+                    writer.write(items);
+                    assertEquals(view.render(items), inflate(mem.toByteArray(), compression));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFlushPolicyOfCompressedWrites() throws IOException {
+        HtmlView<List<String>> view = flushedView()
+            .setFlushPolicy(FlushPolicy.NONE.afterFirstBlock().every(64))
+            .threadSafe();
+        for (int i = 0; i < 2; i++) {
+            for (List<String> items : MODELS) {
+                for (Compression compression : Compression.values()) {
+                    ByteArrayOutputStream mem = new ByteArrayOutputStream();
+                    ((DynamicHtml<List<String>>) view).write(items, mem, compression);
+                    assertEquals(view.render(items), inflate(mem.toByteArray(), compression));
+                }
+            }
+        }
+    }
+}
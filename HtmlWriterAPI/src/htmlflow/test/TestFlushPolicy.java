@@ -0,0 +1,87 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import htmlflow.FlushPolicy;
+import htmlflow.HtmlView;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestFlushPolicy {
+
+    private static final List<String> ITEMS = Arrays.asList("a", "b", "c");
+
+    /**
+     * Keeps a snapshot of the content on each flush.
+     */
+    private static class FlushRecorder extends ByteArrayOutputStream {
+        final List<String> flushes = new ArrayList<>();
+
+        @Override
+        public void flush() {
+            flushes.add(new String(toByteArray(), UTF_8));
+        }
+    }
+
+    private static DynamicHtml<List<String>> itemsView() {
+        return DynamicHtml.view((view, items) -> view
+            .html()
+                .head()
+                    .title().text("Items").__()
+                .__()
+                .of(html -> view.flush())
+                .body()
+                    .div()
+                        .dynamic(div -> items.forEach(item -> div.p().text(item).__()))
+                    .__()
+                .__()
+            .__());
+    }
+
+    @Test
+    public void testFlushMarkerWritesHead() {
+        FlushRecorder out = new FlushRecorder();
+        String expected = itemsView().render(ITEMS);
+        HtmlView<List<String>> view = (HtmlView<List<String>>) itemsView().setOutputStream(out);
+        /*
+         * The first write collects the static blocks and only flushes at the end.
+         */
+        view.write(ITEMS);
+        assertEquals(expected, out.flushes.get(out.flushes.size() - 1));
+        out.reset();
+        out.flushes.clear();
+        /*
+         * Then the head is flushed on the flush marker.
+         */
+        view.write(ITEMS);
+        assertEquals(expected, new String(out.toByteArray(), UTF_8));
+        String head = out.flushes.get(0);
+        assertTrue(head.endsWith("</head>"));
+        assertTrue(expected.startsWith(head));
+    }
+
+    @Test
+    public void testFlushEveryBytes() {
+        FlushRecorder out = new FlushRecorder();
+        List<String> many = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            many.add("item " + i);
+        String expected = itemsView().render(many);
+        HtmlView<List<String>> view = (HtmlView<List<String>>) itemsView()
+            .setFlushPolicy(FlushPolicy.NONE.every(64))
+            .setOutputStream(out);
+        view.write(many);
+        out.reset();
+        out.flushes.clear();
+        view.write(many);
+        assertEquals(expected, new String(out.toByteArray(), UTF_8));
+        assertTrue(out.flushes.size() > expected.length() / 64);
+    }
+}
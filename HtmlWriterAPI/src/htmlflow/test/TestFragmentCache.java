@@ -0,0 +1,155 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import htmlflow.FragmentCache;
+import htmlflow.HtmlView;
+import htmlflow.HtmlWriter;
+import htmlflow.OutputFormat;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static htmlflow.test.views.HtmlCards.cardsView;
+import static htmlflow.test.views.HtmlCards.titleView;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class TestFragmentCache {
+
+    private static final List<String> SKUS = Arrays.asList("a1", "b2", "a1");
+
+    @Test
+    public void testKeyedPartials() {
+        FragmentCache cards = new FragmentCache(10);
+        AtomicInteger calls = new AtomicInteger();
+        DynamicHtml<List<String>> view = cardsView(cards, calls);
+        String expected = cardsView(new FragmentCache(1), new AtomicInteger()).render(SKUS);
+        assertEquals(expected, view.render(SKUS));
+        assertEquals(2, calls.get());
+        assertEquals(expected, view.render(SKUS));
+        assertEquals(2, calls.get());
+        assertEquals(4, cards.hits());
+        assertEquals(2, cards.misses());
+    }
+
+    @Test
+    public void testKeyedDynamicBlocks() {
+        FragmentCache cache = new FragmentCache(10);
+        AtomicInteger calls = new AtomicInteger();
+        DynamicHtml<String> view = DynamicHtml.view((v, title) -> v
+            .div()
+                .of(div -> v.dynamic(div, cache, title, d -> {
+                    calls.incrementAndGet();
+                    d.attrClass("card").p().text(title).__();
+                }))
+            .__());
+        String first = view.render("Hello");
+        assertEquals(first, view.render("Hello"));
+        assertEquals(1, calls.get());
+        view.render("World");
+        assertEquals(2, calls.get());
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    public void testKeyedFragmentsOnStreams() {
+        String expected = cardsView(new FragmentCache(10), new AtomicInteger()).render(SKUS);
+        ByteArrayOutputStream mem = new ByteArrayOutputStream();
+        HtmlWriter<List<String>> printed = cardsView(new FragmentCache(10), new AtomicInteger())
+            .setPrintStream(new PrintStream(mem, true), UTF_8);
+        HtmlView<List<String>> streamed = cardsView(new FragmentCache(10), new AtomicInteger())
+            .threadSafe();
+        for (int i = 0; i < 2; i++) {
+            mem.reset();
+            printed.write(SKUS);
+            assertEquals(expected, new String(mem.toByteArray(), UTF_8));
+            mem.reset();
+            ((DynamicHtml<List<String>>) streamed).write(SKUS, mem);
+            assertEquals(expected, new String(mem.toByteArray(), UTF_8));
+        }
+    }
+
+    @Test
+    public void testOutputOptions() {
+        FragmentCache shared = new FragmentCache(10);
+        AtomicInteger calls = new AtomicInteger();
+        HtmlView<String> indented = titleView(shared, calls);
+        HtmlView<String> compact = titleView(shared, calls).setOutputFormat(OutputFormat.COMPACT);
+        HtmlView<String> raw = titleView(shared, calls).setEscaping(false);
+        String expectedIndented = titleView(new FragmentCache(1), new AtomicInteger()).render("Hello");
+        String expectedCompact = titleView(new FragmentCache(1), new AtomicInteger())
+            .setOutputFormat(OutputFormat.COMPACT)
+            .render("Hello");
+        String expectedRaw = titleView(new FragmentCache(1), new AtomicInteger())
+            .setEscaping(false)
+            .render("Hello");
+        assertFalse(expectedIndented.equals(expectedCompact));
+        assertFalse(expectedIndented.equals(expectedRaw));
+        for (int i = 0; i < 2; i++) {
+            assertEquals(expectedIndented, indented.render("Hello"));
+            assertEquals(expectedCompact, compact.render("Hello"));
+            assertEquals(expectedRaw, raw.render("Hello"));
+        }
+        assertEquals(3, calls.get());
+        assertEquals(3, shared.size());
+        shared.invalidate("Hello");
+        assertEquals(0, shared.size());
+    }
+
+    /**
+     * The same key at different depths keeps a fragment per depth, rather
+     * than the call sites evicting each other on every render.
+     */
+    @Test
+    public void testKeyAtDifferentDepths() {
+        FragmentCache cache = new FragmentCache(10);
+        AtomicInteger calls = new AtomicInteger();
+        DynamicHtml<String> view = DynamicHtml.view((v, title) -> v
+            .div()
+                .of(div -> v.dynamic(div, cache, title, d -> {
+                    calls.incrementAndGet();
+                    d.text(title);
+                }))
+                .div()
+                    .div()
+                        .of(div -> v.dynamic(div, cache, title, d -> {
+                            calls.incrementAndGet();
+                            d.text(title);
+                        }))
+                    .__()
+                .__()
+            .__());
+        String first = view.render("Hello");
+        assertEquals(first, view.render("Hello"));
+        assertEquals(first, view.render("Hello"));
+        assertEquals(2, calls.get());
+        assertEquals(2, cache.size());
+        assertEquals(4, cache.hits());
+        cache.invalidate("Hello");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEviction() throws InterruptedException {
+        FragmentCache lru = new FragmentCache(1);
+        AtomicInteger calls = new AtomicInteger();
+        cardsView(lru, calls).render(SKUS);
+        assertEquals(3, calls.get());
+        assertEquals(1, lru.size());
+        assertEquals(2, lru.evictions());
+
+        FragmentCache ttl = new FragmentCache(10, 50, TimeUnit.MILLISECONDS);
+        calls.set(0);
+        DynamicHtml<List<String>> view = cardsView(ttl, calls);
+        view.render(SKUS);
+        Thread.sleep(100);
+        view.render(SKUS);
+        assertEquals(4, calls.get());
+    }
+}
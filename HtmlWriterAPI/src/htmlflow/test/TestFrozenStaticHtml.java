@@ -0,0 +1,72 @@
+package htmlflow.test;
+
+import htmlflow.HtmlView;
+import htmlflow.StaticHtml;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TestFrozenStaticHtml {
+
+    private static StaticHtml countedView(AtomicInteger calls) {
+        return StaticHtml.view(v -> {
+            calls.incrementAndGet();
+            v.div().p().text("Static").__().__();
+        });
+    }
+
+    @Test
+    public void testRenderIsFrozen() {
+        AtomicInteger calls = new AtomicInteger();
+        StaticHtml view = countedView(calls);
+        String first = view.render();
+        String frozen = view.render();
+        assertEquals(first, frozen);
+        assertSame(frozen, view.render());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testWriteSkipsTemplate() {
+        AtomicInteger calls = new AtomicInteger();
+        ByteArrayOutputStream mem = new ByteArrayOutputStream();
+        StaticHtml view = countedView(calls);
+        String expected = view.render();
+        calls.set(0);
+        StaticHtml printed = (StaticHtml) view.setPrintStream(new PrintStream(mem, true));
+        printed.write();
+        mem.reset();
+        printed.write();
+        assertEquals(expected, new String(mem.toByteArray(), UTF_8));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testThreadSafeWriteIsFrozen() {
+        AtomicInteger calls = new AtomicInteger();
+        StaticHtml view = (StaticHtml) countedView(calls).threadSafe();
+        String expected = view.render();
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream mem = new ByteArrayOutputStream();
+            view.write(mem);
+            assertEquals(expected, new String(mem.toByteArray(), UTF_8));
+        }
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testFrozenPartial() {
+        AtomicInteger calls = new AtomicInteger();
+        StaticHtml footer = countedView(calls);
+        HtmlView<Object> page = StaticHtml.view(v -> v.div().of(div -> v.addPartial(footer)).__());
+        HtmlView<Object> other = StaticHtml.view(v -> v.div().of(div -> v.addPartial(footer)).__());
+        assertEquals(page.render(), other.render());
+        assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,92 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlView;
+import htmlflow.HtmlWriter;
+import htmlflow.OutputFormat;
+import htmlflow.StaticHtml;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+public class TestHtmlEscaping {
+
+    private static HtmlView<String> commentView() {
+        return DynamicHtml.<String>view((view, comment) -> view
+            .div()
+                .dynamic(div -> div.attrId(comment).p().text(comment).__())
+            .__())
+            .setOutputFormat(OutputFormat.COMPACT);
+    }
+
+    @Test
+    public void testEscapeTextAndAttributes() {
+        DynamicHtml<String> view = (DynamicHtml<String>) commentView();
+        String comment = "<script>alert('x & \"y\"')</script>";
+        String escaped = "&lt;script&gt;alert(&#39;x &amp; &quot;y&quot;&#39;)&lt;/script&gt;";
+        assertEquals(
+            "<div id=\"" + escaped + "\"><p>" + escaped + "</p></div>",
+            view.render(comment));
+        assertEquals("<div id=\"a&amp;b\"><p>a&amp;b</p></div>", view.render("a&b"));
+    }
+
+    @Test
+    public void testNothingToEscape() {
+        DynamicHtml<String> view = (DynamicHtml<String>) commentView();
+        assertEquals("<div id=\"Hello\"><p>Hello</p></div>", view.render("Hello"));
+        assertEquals("<div id=\"Bye\"><p>Bye</p></div>", view.render("Bye"));
+    }
+
+    @Test
+    public void testEscapeOnOutputStream() {
+        DynamicHtml<String> view = (DynamicHtml<String>) commentView().threadSafe();
+        String comment = "\u00C1 < \uD83D\uDE00 & b";
+        ByteArrayOutputStream mem = new ByteArrayOutputStream();
+        view.write(comment, mem);
+        assertEquals(view.render(comment), new String(mem.toByteArray(), UTF_8));
+        assertEquals(
+            "<div id=\"\u00C1 &lt; \uD83D\uDE00 &amp; b\"><p>\u00C1 &lt; \uD83D\uDE00 &amp; b</p></div>",
+            view.render(comment));
+        mem.reset();
+        view.write("a > b", mem);
+        assertEquals("<div id=\"a &gt; b\"><p>a &gt; b</p></div>", new String(mem.toByteArray(), UTF_8));
+    }
+
+    /**
+     * The first write fills the cache and the later ones write to the
+     * PrintStream directly, both escaping the ranges of text between escapes.
+     */
+    @Test
+    public void testEscapeOnPrintStream() throws UnsupportedEncodingException {
+        String comment = "a < b & 'c' > \"d\"";
+        String expected = commentView().render(comment);
+        ByteArrayOutputStream mem = new ByteArrayOutputStream();
+        HtmlWriter<String> view = commentView().setPrintStream(new PrintStream(mem, true, UTF_8.name()), UTF_8);
+        for (int i = 0; i < 2; i++) {
+            mem.reset();
+            view.write(comment);
+            assertEquals(expected, new String(mem.toByteArray(), UTF_8));
+        }
+    }
+
+    @Test
+    public void testRawText() {
+        StaticHtml[] view = new StaticHtml[1];
+        view[0] = StaticHtml.view(v -> v.div().of(div -> view[0].raw("<b>Bold</b>")).__());
+        assertEquals("\n<div>\n\t<b>Bold</b>\n</div>", view[0].render());
+    }
+
+    @Test
+    public void testEscapingDisabled() {
+        HtmlView<Object> view = StaticHtml
+            .view(v -> v.div().text("<b>Bold</b>").__())
+            .setEscaping(false)
+            .setOutputFormat(OutputFormat.COMPACT);
+        assertEquals("<div><b>Bold</b></div>", view.render());
+    }
+}
@@ -0,0 +1,107 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static htmlflow.test.views.HtmlSections.pageView;
+import static htmlflow.test.views.HtmlSections.sequentialView;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class TestIndependentSections {
+
+    /**
+     * Each section waits for the other, thus a replay only ends if both
+     * sections run at the same time.
+     */
+    private static Function<String, String> meeting(CountDownLatch latch, String prefix) {
+        return page -> {
+            latch.countDown();
+            try {
+                if (!latch.await(10, TimeUnit.SECONDS))
+                    throw new IllegalStateException("The sections did not run concurrently!");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return prefix + page;
+        };
+    }
+
+    @Test
+    public void testSectionsRunConcurrentlyInOrder() {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch[] latch = { new CountDownLatch(1) };
+            DynamicHtml<String> view = pageView(
+                page -> meeting(latch[0], "sidebar ").apply(page),
+                page -> meeting(latch[0], "main ").apply(page),
+                pool);
+            assertEquals(sequentialView().render("home"), view.render("home"));
+            latch[0] = new CountDownLatch(2);
+            assertEquals(sequentialView().render("home"), view.render("home"));
+            latch[0] = new CountDownLatch(2);
+            assertEquals(sequentialView().render("about"), view.render("about"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailedSection() {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            DynamicHtml<String> view = pageView(page -> "sidebar " + page, page -> {
+                if (page.isEmpty())
+                    throw new IllegalStateException();
+                return "main " + page;
+            }, pool);
+            view.render("home");
+            view.render("");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * When the first section fails, the render only throws once the other
+     * section is cancelled or finished, so no work of that render is left behind.
+     */
+    @Test
+    public void testFailedSectionCancelsTheOthers() {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        try {
+            DynamicHtml<String> view = pageView(page -> {
+                if (page.isEmpty())
+                    throw new IllegalStateException();
+                return "sidebar " + page;
+            }, page -> {
+                started.incrementAndGet();
+                try {
+                    Thread.sleep(page.isEmpty() ? 200 : 0);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                finished.incrementAndGet();
+                return "main " + page;
+            }, pool);
+            view.render("home");
+            try {
+                view.render("");
+                fail("The failure of the sidebar should be thrown!");
+            } catch (IllegalStateException e) {
+                assertEquals(started.get(), finished.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import htmlflow.OutputCache;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+public class TestOutputCache {
+
+    private static DynamicHtml<String> pageView(AtomicInteger renders) {
+        return DynamicHtml.view((view, title) -> view
+            .div()
+                .dynamic(div -> {
+                    renders.incrementAndGet();
+                    div.text(title);
+                })
+            .__());
+    }
+
+    @Test
+    public void testPagesAreRenderedOncePerKey() {
+        AtomicInteger renders = new AtomicInteger();
+        DynamicHtml<String> view = pageView(renders);
+        OutputCache<String> pages = view.outputCache(title -> title, 10, 0, TimeUnit.SECONDS);
+        String expected = view.render("Home");
+        renders.set(0);
+        assertEquals(expected, pages.render("Home"));
+        assertEquals(expected, pages.render("Home"));
+        ByteArrayOutputStream mem = new ByteArrayOutputStream();
+        pages.write("Home", mem);
+        assertEquals(expected, new String(mem.toByteArray(), UTF_8));
+        assertEquals(1, renders.get());
+        assertEquals(1, pages.misses());
+        assertEquals(2, pages.hits());
+    }
+
+    @Test
+    public void testEvictionAndExpiration() throws InterruptedException {
+        AtomicInteger renders = new AtomicInteger();
+        OutputCache<String> bounded = pageView(renders).outputCache(title -> title, 2, 0, TimeUnit.SECONDS);
+        bounded.render("a");
+        bounded.render("b");
+        bounded.render("c");
+        assertEquals(2, bounded.size());
+        bounded.render("a");
+        assertEquals(4, renders.get());
+
+        renders.set(0);
+        OutputCache<String> expiring = pageView(renders).outputCache(title -> title, 10, 1, TimeUnit.MILLISECONDS);
+        expiring.render("a");
+        Thread.sleep(5);
+        expiring.render("a");
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    public void testConcurrentMissesAreCollapsed() throws Exception {
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        DynamicHtml<String> view = DynamicHtml.view((v, title) -> v
+            .div()
+                .dynamic(div -> {
+                    renders.incrementAndGet();
+                    sleep(50);
+                    div.text(title);
+                })
+            .__());
+        OutputCache<String> pages = view.outputCache(title -> title, 10, 0, TimeUnit.SECONDS);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return pages.render("Home");
+                }));
+            start.countDown();
+            String first = results.get(0).get();
+            for (Future<String> result : results)
+                assertEquals(first, result.get());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    public void testBookkeepingIsBounded() throws Exception {
+        AtomicInteger renders = new AtomicInteger();
+        DynamicHtml<String> view = pageView(renders);
+        OutputCache<String> expiring = view.outputCache(title -> title, 2, 1, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 20; i++) {
+            expiring.render("Home");
+            sleep(2);
+        }
+        assertEquals(20, renders.get());
+        assertEquals(1, insertions(expiring));
+
+        OutputCache<String> invalidated = view.outputCache(title -> title, 2, 0, TimeUnit.SECONDS);
+        for (int i = 0; i < 20; i++) {
+            invalidated.render("Home");
+            invalidated.invalidate("Home");
+        }
+        assertEquals(0, invalidated.size());
+        assertEquals(0, insertions(invalidated));
+    }
+
+    /**
+     * The number of pages tracked for eviction, which must never exceed the cache.
+     */
+    private static int insertions(OutputCache<?> cache) throws ReflectiveOperationException {
+        Field insertions = OutputCache.class.getDeclaredField("insertions");
+        insertions.setAccessible(true);
+        Map<?, ?> pages = (Map<?, ?>) insertions.get(cache);
+        synchronized (pages) {
+            return pages.size();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
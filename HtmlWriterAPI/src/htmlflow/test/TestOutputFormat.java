@@ -0,0 +1,85 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlView;
+import htmlflow.OutputFormat;
+import htmlflow.StaticHtml;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestOutputFormat {
+
+    private static final List<String> ITEMS = Arrays.asList("one", "two");
+
+    private static DynamicHtml<List<String>> itemsView() {
+        return DynamicHtml.view((view, items) -> view
+            .html()
+                .body()
+                    .ul().attrClass("items")
+                        .dynamic(ul -> items.forEach(item -> ul.li().text(item).__()))
+                    .__()
+                    .br().__()
+                .__()
+            .__());
+    }
+
+    @Test
+    public void testCompactDynamicView() {
+        DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) itemsView().setOutputFormat(OutputFormat.COMPACT);
+        String expected = "<html><body><ul class=\"items\"><li>one</li><li>two</li></ul><br></body></html>";
+        String first = view.render(ITEMS);
+        assertTrue(first.endsWith(expected));
+        assertTrue(first.indexOf('\n') < 0);
+        /*
+         * The second render copies the static blocks from cache.
+         */
+        assertEquals(first, view.render(ITEMS));
+    }
+
+    @Test
+    public void testCompactStaticView() {
+        HtmlView<Object> view = StaticHtml
+            .view(v -> v.div().p().text("Hello").__().__())
+            .setOutputFormat(OutputFormat.COMPACT);
+        assertEquals("<div><p>Hello</p></div>", view.render());
+        assertEquals("<div><p>Hello</p></div>", view.render());
+    }
+
+    @Test
+    public void testCompactThreadSafeWrite() {
+        DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) itemsView()
+            .setOutputFormat(OutputFormat.COMPACT)
+            .threadSafe();
+        String expected = view.render(ITEMS);
+        ByteArrayOutputStream mem = new ByteArrayOutputStream();
+        view.write(ITEMS, mem);
+        mem.reset();
+        view.write(ITEMS, mem);
+        assertEquals(expected, new String(mem.toByteArray(), UTF_8));
+    }
+
+    @Test
+    public void testUnquotedAttributesAndCollapsedWhitespace() {
+        OutputFormat format = OutputFormat.COMPACT.unquotedAttributes().collapseWhitespace();
+        HtmlView<Object> view = StaticHtml
+            .view(v -> v
+                .div().attrClass("a").attrId("x y")
+                    .p().text("  Hello \n\t World ").__()
+                .__())
+            .setOutputFormat(format);
+        assertEquals("<div class=a id=\"x y\"><p> Hello World </p></div>", view.render());
+    }
+
+    @Test
+    public void testIndentedIsTheDefault() {
+        DynamicHtml<List<String>> view = itemsView();
+        assertEquals(view.render(ITEMS), view.setOutputFormat(OutputFormat.INDENTED).render(ITEMS));
+    }
+}
@@ -0,0 +1,70 @@
+package htmlflow.test;
+
+import htmlflow.test.views.HtmlItems;
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlView;
+import htmlflow.HtmlWriter;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+public class TestOutputStreamVisitor {
+
+    private static final List<String> FIRST = Arrays.asList("A\u00E7\u00E3o", "\u00DCn\u00EFc\u00F6d\u00E9", "\uD83D\uDE00 smile");
+    private static final List<String> SECOND = Arrays.asList("Second", "Model");
+
+    private static DynamicHtml<List<String>> itemsView() {
+        return HtmlItems.itemsView("Items \u00BD");
+    }
+
+    @Test
+    public void testOutputStreamEqualsRender() {
+        DynamicHtml<List<String>> view = itemsView();
+        ByteArrayOutputStream mem = new ByteArrayOutputStream();
+        HtmlWriter<List<String>> writer = view.setOutputStream(mem);
+        /*
+         * First write collects the static blocks and the second one copies them from cache.
+         */
+        writer.write(FIRST);
+        assertEquals(view.render(FIRST), new String(mem.toByteArray(), UTF_8));
+        mem.reset();
+        writer.write(SECOND);
+        assertEquals(view.render(SECOND), new String(mem.toByteArray(), UTF_8));
+    }
+
+    @Test
+    public void testChannelEqualsRender() {
+        DynamicHtml<List<String>> view = itemsView();
+        ByteArrayOutputStream mem = new ByteArrayOutputStream();
+        HtmlWriter<List<String>> writer = view.setOutputChannel(Channels.newChannel(mem));
+        writer.write(FIRST);
+        mem.reset();
+        writer.write(SECOND);
+        assertEquals(view.render(SECOND), new String(mem.toByteArray(), UTF_8));
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void testIOExceptionIsPropagated() {
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        itemsView().setOutputStream(broken).write(FIRST);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWrongUseOfThreadSafeInViewWithOutputStream() {
+        ((HtmlView<List<String>>) itemsView().setOutputStream(new ByteArrayOutputStream())).threadSafe();
+    }
+}
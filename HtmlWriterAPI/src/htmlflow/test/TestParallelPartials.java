@@ -0,0 +1,44 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlView;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static htmlflow.test.views.HtmlPartials.parallelTableView;
+import static htmlflow.test.views.HtmlPartials.threadSafeRowView;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestParallelPartials {
+
+    private static final List<String> ROWS = IntStream.range(0, 1000)
+        .mapToObj(i -> "row " + i)
+        .collect(Collectors.toList());
+
+    @Test
+    public void testParallelRowsInOrder() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            String expected = parallelTableView(threadSafeRowView(), Integer.MAX_VALUE, pool).render(ROWS);
+            DynamicHtml<List<String>> parallel = parallelTableView(threadSafeRowView(), 100, pool);
+            assertEquals(expected, parallel.render(ROWS));
+            assertEquals(expected, parallel.render(ROWS));
+            assertTrue(expected.indexOf("row 998") < expected.indexOf("row 999"));
+            List<String> few = ROWS.subList(0, 10);
+            assertEquals(parallelTableView(threadSafeRowView(), Integer.MAX_VALUE, pool).render(few), parallel.render(few));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParallelRowsNeedThreadSafePartial() {
+        HtmlView<String> row = DynamicHtml.view((view, r) -> view.tr().__());
+        parallelTableView(row, 1, ForkJoinPool.commonPool()).render(ROWS);
+    }
+}
@@ -0,0 +1,99 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlView;
+import htmlflow.HtmlWriter;
+import htmlflow.StaticHtml;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static htmlflow.test.views.HtmlPartials.ROW;
+import static htmlflow.test.views.HtmlPartials.tableView;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestPartialsIntoParent {
+
+    @Test
+    public void testPartialsWrittenIntoParent() {
+        DynamicHtml<List<String>> view = tableView();
+        ByteArrayOutputStream mem = new ByteArrayOutputStream();
+        /*
+         * A parent writing to a PrintStream cannot share its output,
+         * thus the partials are rendered into their own output and copied.
+         */
+        PrintStream out = new PrintStream(mem, true);
+        DynamicHtml<List<String>> copied = (DynamicHtml<List<String>>) tableView().setPrintStream(out, UTF_8);
+        for (List<String> items : Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d", "e"))) {
+            mem.reset();
+            copied.write(items);
+            String html = view.render(items);
+            assertEquals(new String(mem.toByteArray(), UTF_8), html);
+            items.forEach(item -> assertTrue(html.contains(item)));
+            assertTrue(html.contains("Footer"));
+        }
+    }
+
+    @Test
+    public void testPartialKeepsItsOwnCache() {
+        DynamicHtml<List<String>> view = tableView();
+        String first = view.render(Arrays.asList("a", "b"));
+        /*
+         * The partial renders on its own with the same cached static blocks.
+         */
+        String row = ROW.render("x");
+        assertTrue(row.contains("x"));
+        assertEquals(first, view.render(Arrays.asList("a", "b")));
+    }
+
+    @Test
+    public void testThreadSafePartials() {
+        HtmlView<List<String>> view = tableView().threadSafe();
+        String expected = tableView().render(Arrays.asList("a", "b"));
+        assertEquals(expected, view.render(Arrays.asList("a", "b")));
+        assertEquals(expected, view.render(Arrays.asList("a", "b")));
+    }
+
+    /**
+     * A thread-safe partial in a cached static block of its parent is not
+     * rendered again, thus it must not borrow a visitor either.
+     */
+    @Test
+    public void testThreadSafePartialInStaticBlock() {
+        HtmlView<Object> footer = StaticHtml.view(v -> v.div().text("Footer").__()).threadSafe();
+        DynamicHtml<String> view = DynamicHtml.view((v, title) -> v
+            .div()
+                .of(div -> v.addPartial(footer))
+                .p().dynamic(p -> p.text(title)).__()
+            .__());
+        String first = view.render("a");
+        assertEquals(first, view.render("a"));
+        assertEquals(first, view.render("a"));
+        assertEquals(0, footer.busyVisitors());
+    }
+
+    @Test
+    public void testFailedPartialCopiedIntoParent() {
+        HtmlView<String> row = DynamicHtml.<String>view((v, item) -> v
+            .div().dynamic(div -> div.text(item.toUpperCase())).__()).threadSafe();
+        DynamicHtml<List<String>> view = DynamicHtml.view((v, items) -> v
+            .div()
+                .dynamic(div -> items.forEach(item -> v.addPartial(row, item)))
+            .__());
+        HtmlWriter<List<String>> printed = view.setPrintStream(new PrintStream(new ByteArrayOutputStream(), true), UTF_8);
+        printed.write(Arrays.asList("a"));
+        try {
+            printed.write(Arrays.asList("b", null));
+            fail("The failure of the partial should be thrown!");
+        } catch (NullPointerException e) {
+            // expected
+        }
+        assertEquals(0, row.busyVisitors());
+    }
+}
@@ -0,0 +1,75 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlWriter;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class TestPrintStreamCharset {
+
+    /**
+     * A view with non-ASCII text in both its static and dynamic blocks.
+     */
+    private static DynamicHtml<String> greetingView() {
+        return DynamicHtml.view((view, name) -> view
+            .div()
+                .p().text("Ol\u00E1, \u00E7a va? \u20AC \uD83D\uDE00").__()
+                .p().dynamic(p -> p.text(name)).__()
+            .__());
+    }
+
+    private static PrintStream printStream(ByteArrayOutputStream mem, Charset charset) throws UnsupportedEncodingException {
+        return new PrintStream(mem, true, charset.name());
+    }
+
+    /**
+     * The pre-encoded blocks write the same bytes that a PrintStream with
+     * the same charset writes for the rendered HTML, from the first write
+     * on, whatever the default charset of the platform.
+     */
+    @Test
+    public void testSameOutputAsPrintStream() throws UnsupportedEncodingException {
+        List<String> names = Arrays.asList("Jo\u00E3o", "Zo\u00EB", "\u00C5sa \uD83D\uDE00");
+        for (Charset charset : new Charset[] { UTF_8, ISO_8859_1 }) {
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            PrintStream printed = printStream(expected, charset);
+            DynamicHtml<String> reference = greetingView();
+            HtmlWriter<String> encoded = greetingView().setPrintStream(printStream(actual, charset), charset);
+            for (String name : names) {
+                expected.reset();
+                actual.reset();
+                printed.print(reference.render(name));
+                encoded.write(name);
+                assertEquals(Arrays.toString(expected.toByteArray()), Arrays.toString(actual.toByteArray()));
+            }
+        }
+    }
+
+    /**
+     * The charset of a PrintStream is only known on Java 18 or later.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongCharsetOfPrintStream() throws UnsupportedEncodingException {
+        boolean isCharsetKnown;
+        try {
+            PrintStream.class.getMethod("charset");
+            isCharsetKnown = true;
+        } catch (NoSuchMethodException e) {
+            isCharsetKnown = false;
+        }
+        assumeTrue(isCharsetKnown);
+        greetingView().setPrintStream(printStream(new ByteArrayOutputStream(), ISO_8859_1), UTF_8);
+    }
+}
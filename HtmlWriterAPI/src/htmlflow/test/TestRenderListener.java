@@ -0,0 +1,90 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlView;
+import htmlflow.HtmlViewStats;
+import htmlflow.StaticHtml;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import javax.management.ObjectName;
+
+import static htmlflow.test.views.HtmlItems.listView;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestRenderListener {
+
+    private static final List<String> ITEMS = Arrays.asList("one", "two", "three");
+
+    @Test
+    public void testStatsOfRenders() {
+        HtmlViewStats stats = new HtmlViewStats();
+        DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) listView().setRenderListener(stats);
+        String first = view.render(ITEMS);
+        assertEquals(1, stats.getRenders());
+        assertEquals(2, stats.getStaticBlocks());
+        assertTrue(stats.getCacheBuildNanos() > 0);
+        assertEquals(0, stats.getCachedRatio(), 0);
+        String second = view.render(ITEMS);
+        assertEquals(first, second);
+        assertEquals(2, stats.getRenders());
+        /*
+         * Nothing is copied from cache on the first render.
+         */
+        assertTrue(stats.getCachedRatio() > 0);
+        assertTrue(stats.getCachedRatio() < 0.5);
+        assertTrue(stats.getP99RenderMicros() >= stats.getP50RenderMicros());
+        stats.reset();
+        assertEquals(0, stats.getRenders());
+    }
+
+    @Test
+    public void testStatsOfThreadSafeWrites() {
+        HtmlViewStats stats = new HtmlViewStats();
+        DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) listView()
+            .threadSafe()
+            .setRenderListener(stats);
+        ByteArrayOutputStream mem = new ByteArrayOutputStream();
+        view.write(ITEMS, mem);
+        mem.reset();
+        view.write(ITEMS, mem);
+        assertEquals(2, stats.getRenders());
+        assertTrue(stats.getCachedRatio() > 0);
+    }
+
+    @Test
+    public void testStatsOfPartials() {
+        HtmlViewStats stats = new HtmlViewStats();
+        StaticHtml footer = StaticHtml.view(v -> v.div().text("footer").__());
+        HtmlView<Object> page = StaticHtml
+            .view(v -> {
+                v.html().body().of(body -> v.addPartial(footer)).__().__();
+            })
+            .setRenderListener(stats);
+        page.render();
+        page.render();
+        /*
+         * Static views do not visit their elements again once in cache.
+         */
+        assertEquals(1, stats.getPartials());
+        assertEquals(2, stats.getRenders());
+    }
+
+    @Test
+    public void testRegisterMBean() throws Exception {
+        HtmlViewStats stats = new HtmlViewStats().register("items");
+        try {
+            ObjectName name = new ObjectName("htmlflow:type=HtmlViewStats,name=\"items\"");
+            DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) listView().setRenderListener(stats);
+            view.render(ITEMS);
+            Object renders = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Renders");
+            assertEquals(1L, renders);
+        } finally {
+            HtmlViewStats.unregister("items");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static htmlflow.test.views.HtmlItems.itemsView;
+import static org.junit.Assert.assertEquals;
+
+public class TestRenderToAppendable {
+
+    @Test
+    public void testRenderToReusedStringBuilder() {
+        DynamicHtml<List<String>> expected = itemsView();
+        DynamicHtml<List<String>> view = itemsView();
+        StringBuilder out = new StringBuilder();
+        for (List<String> items : Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c"), Arrays.asList("d", "e", "f"))) {
+            out.setLength(0);
+            view.render(items, out);
+            assertEquals(expected.render(items), out.toString());
+        }
+    }
+
+    @Test
+    public void testRenderToWriter() {
+        List<String> items = Arrays.asList("a", "b");
+        StringWriter out = new StringWriter();
+        itemsView().render(items, out);
+        assertEquals(itemsView().render(items), out.toString());
+    }
+}
@@ -0,0 +1,153 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlView;
+import htmlflow.StaticBlocks;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import static htmlflow.test.views.HtmlItems.ITEMS;
+import static htmlflow.test.views.HtmlItems.sectionsView;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestStaticBlocks {
+
+    @Test
+    public void testDryRunSkipsSections() {
+        AtomicInteger sections = new AtomicInteger();
+        DynamicHtml<List<String>> view = sectionsView(sections);
+        assertNull(view.staticBlocks());
+        view.dryRun();
+        assertEquals(0, sections.get());
+        assertEquals(3, view.staticBlocks().size());
+        assertEquals(sectionsView(new AtomicInteger()).render(ITEMS), view.render(ITEMS));
+    }
+
+    @Test
+    public void testEmptySectionsAfterDryRun() {
+        List<String> empty = Collections.emptyList();
+        DynamicHtml<List<String>> view = sectionsView();
+        view.dryRun();
+        String html = view.render(empty);
+        assertTrue(html.contains("<ul>"));
+        assertEquals(sectionsView().render(empty), html);
+        assertEquals(sectionsView().render(ITEMS), view.render(ITEMS));
+
+        DynamicHtml<List<String>> emptyFirst = sectionsView();
+        assertEquals(html, emptyFirst.render(empty));
+        assertEquals(sectionsView().render(ITEMS), emptyFirst.render(ITEMS));
+    }
+
+    @Test
+    public void testPreloadedBlocks() {
+        DynamicHtml<List<String>> source = sectionsView(new AtomicInteger());
+        String expected = source.render(ITEMS);
+        StaticBlocks blocks = source.staticBlocks();
+
+        DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) sectionsView(new AtomicInteger()).preload(blocks);
+        assertEquals(expected, view.render(ITEMS));
+        assertEquals(expected, view.render(ITEMS));
+
+        HtmlView<List<String>> threadSafe = sectionsView(new AtomicInteger()).threadSafe().preload(blocks);
+        assertEquals(expected, threadSafe.render(ITEMS));
+        ByteArrayOutputStream mem = new ByteArrayOutputStream();
+        ((DynamicHtml<List<String>>) threadSafe).write(ITEMS, mem);
+        assertEquals(expected, new String(mem.toByteArray(), UTF_8));
+    }
+
+    @Test
+    public void testSnapshotFile() throws IOException {
+        DynamicHtml<List<String>> source = sectionsView(new AtomicInteger());
+        String expected = source.render(ITEMS);
+        Path dir = Files.createTempDirectory("htmlflow");
+        Path file = dir.resolve("items.blocks");
+        try {
+            assertNull(StaticBlocks.read(file, "v1"));
+            source.staticBlocks().write(file, "v1");
+            assertNull(StaticBlocks.read(file, "v2"));
+
+            StaticBlocks blocks = StaticBlocks.read(file, "v1");
+            assertEquals(source.staticBlocks().size(), blocks.size());
+            DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) sectionsView(new AtomicInteger()).preload(blocks);
+            assertEquals(expected, view.render(ITEMS));
+
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length - 6] ^= 1;
+            Files.write(file, bytes);
+            try {
+                StaticBlocks.read(file, "v1");
+                fail("A corrupted snapshot should not be loaded!");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * A huge length in a snapshot, even with a valid CRC32, is rejected
+     * before allocating an array of that length.
+     */
+    @Test
+    public void testSnapshotWithCorruptedLength() throws IOException {
+        Path dir = Files.createTempDirectory("htmlflow");
+        Path file = dir.resolve("items.blocks");
+        try {
+            DynamicHtml<List<String>> source = sectionsView(new AtomicInteger());
+            source.render(ITEMS);
+            source.staticBlocks().write(file, "v1");
+            byte[] bytes = Files.readAllBytes(file);
+            ByteBuffer.wrap(bytes).putInt(8, Integer.MAX_VALUE);
+            Files.write(file, bytes);
+            assertCorrupted(file);
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 4);
+            ByteBuffer.wrap(bytes).putInt(bytes.length - 4, (int) crc.getValue());
+            Files.write(file, bytes);
+            assertCorrupted(file);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+
+    private static void assertCorrupted(Path file) {
+        try {
+            StaticBlocks.read(file, "v1");
+            fail("A corrupted snapshot should not be loaded!");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("corrupted"));
+        }
+    }
+
+    @Test
+    public void testReplayOfManyBlocks() {
+        DynamicHtml<List<String>> view = DynamicHtml.view((v, items) -> v
+            .div()
+                .of(div -> {
+                    for (int i = 0; i < 100; i++)
+                        v.dynamic(div.div().attrId("d" + i), (elem, model) -> elem.text(model.get(0)));
+                })
+            .__());
+        String first = view.render(ITEMS);
+        assertEquals(101, view.staticBlocks().size());
+        assertEquals(first, view.render(ITEMS));
+        assertEquals(first.replace("one", "two"), view.render(Arrays.asList("two")));
+    }
+}
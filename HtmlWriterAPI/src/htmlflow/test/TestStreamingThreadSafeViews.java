@@ -0,0 +1,142 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static htmlflow.test.views.HtmlItems.itemsView;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class TestStreamingThreadSafeViews {
+
+    private static final int RENDERS = 10_000;
+
+    /**
+     * Uses a virtual thread per task when running on a JDK that supports it,
+     * or otherwise a large pool of platform threads.
+     */
+    private static ExecutorService newExecutor() {
+        ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+        return virtualThreads != null ? virtualThreads : Executors.newFixedThreadPool(256);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor")
+                .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    @Test
+    public void testConcurrentWritesToOutputStreams() throws Exception {
+        DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) itemsView().threadSafe();
+        writeConcurrently(view, newExecutor());
+        assertEquals(0, view.busyVisitors());
+    }
+
+    /**
+     * With fewer threads than the visitors kept by the pool, released visitors
+     * are never dropped, thus renders only create a visitor when all others
+     * are busy, i.e. up to the peak of concurrent writes, however many writes.
+     */
+    @Test
+    public void testVisitorsReusedByWrites() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) itemsView().threadSafe();
+        int peakInFlight = writeConcurrently(view, Executors.newFixedThreadPool(threads));
+        assertTrue(view.createdVisitors() <= peakInFlight);
+        assertTrue(view.createdVisitors() <= threads);
+        assertEquals(0, view.busyVisitors());
+    }
+
+    @Test
+    public void testNoPinnedVirtualThreads() throws Exception {
+        ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+        assumeTrue(virtualThreads != null);
+        DynamicHtml<List<String>> view = (DynamicHtml<List<String>>) itemsView().threadSafe();
+        assertEquals(0, recordPinnedEvents(() -> writeConcurrently(view, virtualThreads)));
+    }
+
+    /**
+     * Writes RENDERS models concurrently on the executor, which is then shut down.
+     *
+     * @return the peak of concurrent writes.
+     */
+    private static int writeConcurrently(DynamicHtml<List<String>> view, ExecutorService executor) throws Exception {
+        DynamicHtml<List<String>> expected = itemsView();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        try {
+            List<Future<?>> results = new ArrayList<>(RENDERS);
+            for (int i = 0; i < RENDERS; i++) {
+                List<String> items = Arrays.asList("item " + i, "\u00E7" + (i % 7));
+                String html = expected.render(items);
+                results.add(executor.submit(() -> {
+                    peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    view.write(items, out);
+                    inFlight.decrementAndGet();
+                    assertEquals(html, new String(out.toByteArray(), UTF_8));
+                }));
+            }
+            for (Future<?> result : results)
+                result.get();
+        } finally {
+            executor.shutdown();
+        }
+        return peakInFlight.get();
+    }
+
+    /**
+     * Runs the task while JFR records the jdk.VirtualThreadPinned events,
+     * i.e. virtual threads blocked while pinned to their carrier thread.
+     * JFR is used through reflection, because the tests target Java 8.
+     *
+     * @return the number of events.
+     */
+    private static long recordPinnedEvents(Callable<?> task) throws Exception {
+        Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+        Object recording = recordingClass.getConstructor().newInstance();
+        Object settings = recordingClass.getMethod("enable", String.class).invoke(recording, "jdk.VirtualThreadPinned");
+        Class.forName("jdk.jfr.EventSettings").getMethod("withThreshold", Duration.class).invoke(settings, Duration.ZERO);
+        Path file = Files.createTempFile("pinned", ".jfr");
+        try {
+            recordingClass.getMethod("start").invoke(recording);
+            try {
+                task.call();
+            } finally {
+                recordingClass.getMethod("stop").invoke(recording);
+            }
+            recordingClass.getMethod("dump", Path.class).invoke(recording, file);
+            Method readAllEvents = Class.forName("jdk.jfr.consumer.RecordingFile").getMethod("readAllEvents", Path.class);
+            return ((List<?>) readAllEvents.invoke(null, file)).size();
+        } finally {
+            recordingClass.getMethod("close").invoke(recording);
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWrongUseOfWriteToOutputStreamOnViewNotThreadSafe() {
+        itemsView().write(Arrays.asList("a"), new ByteArrayOutputStream());
+    }
+}
@@ -0,0 +1,85 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlView;
+import org.junit.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static htmlflow.test.views.HtmlItems.itemsView;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class TestThreadSafeViews {
+
+    private static final int THREADS = 32;
+    private static final int RENDERS = 2000;
+    /**
+     * A model that fails the render in the middle of its dynamic block.
+     */
+    private static final List<String> FAILING_ITEMS = new AbstractList<String>() {
+        @Override
+        public String get(int index) {
+            throw new IllegalStateException("No items!");
+        }
+
+        @Override
+        public int size() {
+            return 1;
+        }
+    };
+
+    @Test
+    public void testConcurrentRendersOfThreadSafeView() throws Exception {
+        HtmlView<List<String>> view = itemsView().threadSafe();
+        DynamicHtml<List<String>> expected = itemsView();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < RENDERS; i++) {
+                List<String> items = Arrays.asList("item " + i, "other " + (i % 7));
+                String html = expected.render(items);
+                results.add(pool.submit(() -> assertEquals(html, view.render(items))));
+            }
+            for (Future<?> result : results)
+                result.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A failed render discards its visitor, so the next render on the same
+     * thread starts on a clean visitor.
+     */
+    @Test
+    public void testFailedRenderOfThreadSafeView() {
+        HtmlView<List<String>> view = itemsView().threadSafe();
+        List<String> items = Arrays.asList("a", "b");
+        String expected = view.render(items);
+        try {
+            view.render(FAILING_ITEMS);
+            fail("The failure of the model should be thrown!");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertEquals(0, view.busyVisitors());
+        assertEquals(expected, view.render(items));
+        StringBuilder out = new StringBuilder();
+        try {
+            ((DynamicHtml<List<String>>) view).render(FAILING_ITEMS, out);
+            fail("The failure of the model should be thrown!");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertEquals(0, view.busyVisitors());
+        ((DynamicHtml<List<String>>) view).render(items, out);
+        assertEquals(expected, out.toString());
+    }
+}
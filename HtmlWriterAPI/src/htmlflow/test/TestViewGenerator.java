@@ -0,0 +1,87 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import htmlflow.codegen.ViewGenerator;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class TestViewGenerator {
+
+    private static final String SMILES = repeat("\uD83D\uDE00", 10000);
+
+    private static String repeat(String text, int times) {
+        StringBuilder res = new StringBuilder();
+        for (int i = 0; i < times; i++)
+            res.append(text);
+        return res.toString();
+    }
+
+    /**
+     * A view with a static block longer than a string literal, with quotes,
+     * backslashes, tabs, new lines and surrogate pairs, which the generated
+     * literals split either between or within a pair, depending on pad.
+     */
+    private static DynamicHtml<String> smilesView(String pad) {
+        return DynamicHtml.view((view, name) -> view
+            .div().attrClass("tab\tand \\ backslash")
+                .p().text(pad + SMILES).__()
+                .div()
+                    .of(div -> view.dynamic(div, (elem, model) -> elem.text(model)))
+                .__()
+            .__());
+    }
+
+    @Test
+    public void testGeneratedBlocks() throws Exception {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(javac != null);
+        Path dir = Files.createTempDirectory("htmlflow");
+        try {
+            for (String pad : new String[] { "", "x" }) {
+                Path source = ViewGenerator.generate(
+                    smilesView(pad),
+                    "TestViewGenerator.smilesView",
+                    "htmlflow.generated.SmilesBlocks",
+                    dir.resolve(pad.isEmpty() ? "even" : "odd"));
+                assertTrue(new String(Files.readAllBytes(source), UTF_8).contains("\",\n                \""));
+                Path classes = source.getParent().getParent().getParent();
+                int status = javac.run(null, null, null,
+                    "-encoding", "UTF-8",
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-d", classes.toString(),
+                    source.toString());
+                assertEquals(0, status);
+                try (URLClassLoader loader = new URLClassLoader(new URL[] { classes.toUri().toURL() }, getClass().getClassLoader())) {
+                    Method preload = loader.loadClass("htmlflow.generated.SmilesBlocks").getMethod("preload", htmlflow.HtmlView.class);
+                    DynamicHtml<String> view = (DynamicHtml<String>) preload.invoke(null, smilesView(pad));
+                    String expected = smilesView(pad).render("Hello");
+                    assertEquals(expected, view.render("Hello"));
+                    assertEquals(expected, view.render("Hello"));
+                }
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestViewPlan {
+
+    private static final List<List<String>> MODELS = Arrays.asList(
+        Arrays.asList("a", "b"),
+        Arrays.asList("c"),
+        Arrays.asList("d", "e", "f"));
+
+    private static DynamicHtml<List<String>> plainView() {
+        return DynamicHtml.view((view, items) -> view
+            .html()
+                .body()
+                    .div()
+                        .dynamic(div -> items.forEach(item -> div.p().text(item).__()))
+                    .__()
+                    .div()
+                        .dynamic(div -> div.text(String.valueOf(items.size())))
+                    .__()
+                .__()
+            .__());
+    }
+
+    @Test
+    public void testPlannedViewRunsBinderOnce() {
+        AtomicInteger binderCalls = new AtomicInteger();
+        DynamicHtml<List<String>> planned = DynamicHtml.view((view, items) -> {
+            binderCalls.incrementAndGet();
+            view
+                .html()
+                    .body()
+                        .div()
+                            .of(div -> view.dynamic(div, (elem, model) -> model.forEach(item -> elem.p().text(item).__())))
+                        .__()
+                        .div()
+                            .of(div -> view.dynamic(div, (elem, model) -> elem.text(String.valueOf(model.size()))))
+                        .__()
+                    .__()
+                .__();
+        });
+        DynamicHtml<List<String>> expected = plainView();
+        for (List<String> items : MODELS)
+            assertEquals(expected.render(items), planned.render(items));
+        assertEquals(1, binderCalls.get());
+    }
+
+    @Test
+    public void testMixedViewIsNotPlanned() {
+        AtomicInteger binderCalls = new AtomicInteger();
+        DynamicHtml<List<String>> mixed = DynamicHtml.view((view, items) -> {
+            binderCalls.incrementAndGet();
+            view
+                .html()
+                    .body()
+                        .div()
+                            .of(div -> view.dynamic(div, (elem, model) -> model.forEach(item -> elem.p().text(item).__())))
+                        .__()
+                        .div()
+                            .dynamic(div -> div.text(String.valueOf(items.size())))
+                        .__()
+                    .__()
+                .__();
+        });
+        DynamicHtml<List<String>> expected = plainView();
+        for (List<String> items : MODELS)
+            assertEquals(expected.render(items), mixed.render(items));
+        assertEquals(MODELS.size(), binderCalls.get());
+    }
+}
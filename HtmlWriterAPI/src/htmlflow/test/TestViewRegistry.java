@@ -0,0 +1,58 @@
+package htmlflow.test;
+
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlView;
+import htmlflow.HtmlViewRegistry;
+import htmlflow.StaticHtml;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static htmlflow.test.views.HtmlItems.ITEMS;
+import static htmlflow.test.views.HtmlItems.itemsView;
+import static htmlflow.test.views.HtmlItems.sectionsView;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TestViewRegistry {
+
+    @Test
+    public void testWarmUp() {
+        StaticHtml footer = StaticHtml.view(v -> v.div().text("Footer").__());
+        HtmlView<List<String>> items = itemsView().threadSafe();
+        DynamicHtml<List<String>> plan = sectionsView();
+        ByteArrayOutputStream mem = new ByteArrayOutputStream();
+        HtmlView<List<String>> printed = (HtmlView<List<String>>) itemsView().setPrintStream(new PrintStream(mem));
+        HtmlViewRegistry registry = new HtmlViewRegistry()
+            .register("footer", footer)
+            .register("items", items, ITEMS)
+            .register("plan", plan)
+            .register("printed", printed, ITEMS);
+        assertNull(items.staticBlocks());
+        Map<String, Duration> times = registry.warmUp();
+        assertEquals(Arrays.asList("footer", "items", "plan", "printed"), Arrays.asList(times.keySet().toArray()));
+        for (String name : times.keySet())
+            assertNotNull(registry.get(name).staticBlocks());
+        /*
+         * The warm-up writes nothing to the output of views.
+         */
+        assertEquals(0, mem.size());
+        assertEquals(itemsView().render(ITEMS), items.render(ITEMS));
+        assertEquals(sectionsView().render(ITEMS), plan.render(ITEMS));
+        assertSame(items, registry.get("items"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateName() {
+        new HtmlViewRegistry()
+            .register("items", itemsView())
+            .register("items", itemsView());
+    }
+}
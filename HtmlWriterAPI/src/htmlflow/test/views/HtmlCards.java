@@ -0,0 +1,44 @@
+package htmlflow.test.views;
+
+import htmlflow.DynamicHtml;
+import htmlflow.FragmentCache;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Views with keyed fragments, which count the calls of their fragments
+ * actually rendered, i.e. not written from the cache.
+ */
+public class HtmlCards {
+
+    /**
+     * A card partial per sku, keyed by the sku in the given cache.
+     */
+    public static DynamicHtml<List<String>> cardsView(FragmentCache cards, AtomicInteger calls) {
+        DynamicHtml<String> card = DynamicHtml.view((view, sku) -> view
+            .div()
+                .dynamic(div -> {
+                    calls.incrementAndGet();
+                    div.text(sku);
+                })
+            .__());
+        return DynamicHtml.view((view, skus) -> view
+            .div()
+                .dynamic(div -> skus.forEach(sku -> view.addPartial(card, sku, cards, sku)))
+            .__());
+    }
+
+    /**
+     * A dynamic block keyed by the title, with text to escape.
+     */
+    public static DynamicHtml<String> titleView(FragmentCache cache, AtomicInteger calls) {
+        return DynamicHtml.view((v, title) -> v
+            .div()
+                .of(div -> v.dynamic(div, cache, title, d -> {
+                    calls.incrementAndGet();
+                    d.attrClass("card").p().text(title + " & co").__();
+                }))
+            .__());
+    }
+}
@@ -0,0 +1,20 @@
+package htmlflow.test.views;
+
+import htmlflow.DynamicHtml;
+
+/**
+ * An email per customer id, to render in batches.
+ */
+public class HtmlEmails {
+
+    public static DynamicHtml<Integer> emailView() {
+        return DynamicHtml.view((view, id) -> view
+            .html()
+                .body()
+                    .div().attrId("greeting")
+                        .of(div -> view.dynamic(div, (elem, model) -> elem.text("Dear customer " + model)))
+                    .__()
+                .__()
+            .__());
+    }
+}
@@ -0,0 +1,75 @@
+package htmlflow.test.views;
+
+import htmlflow.DynamicHtml;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Views of a list of items shared by the tests of rendering, caching and
+ * output options, whose content does not matter but for its dynamic blocks.
+ */
+public class HtmlItems {
+
+    public static final List<String> ITEMS = Arrays.asList("one", "two");
+
+    /**
+     * A page with a static head and a dynamic block of a paragraph per item.
+     */
+    public static DynamicHtml<List<String>> itemsView() {
+        return itemsView("Items");
+    }
+
+    public static DynamicHtml<List<String>> itemsView(String title) {
+        return DynamicHtml.view((view, items) -> view
+            .html()
+                .head()
+                    .title().text(title).__()
+                .__()
+                .body()
+                    .div()
+                        .dynamic(div -> items.forEach(item -> div.p().text(item).__()))
+                    .__()
+                .__()
+            .__());
+    }
+
+    /**
+     * A page with no head and a dynamic block of a list item per item.
+     */
+    public static DynamicHtml<List<String>> listView() {
+        return DynamicHtml.view((view, items) -> view
+            .html()
+                .body()
+                    .ul()
+                        .dynamic(ul -> items.forEach(item -> ul.li().text(item).__()))
+                    .__()
+                .__()
+            .__());
+    }
+
+    /**
+     * A page whose dynamic blocks are all sections of its plan, which counts
+     * the calls to the section of the items.
+     */
+    public static DynamicHtml<List<String>> sectionsView(AtomicInteger sections) {
+        return DynamicHtml.view((view, items) -> view
+            .html()
+                .body()
+                    .ul()
+                        .of(ul -> view.dynamic(ul, (elem, model) -> {
+                            sections.incrementAndGet();
+                            model.forEach(item -> elem.li().text(item).__());
+                        }))
+                    .__()
+                    .p().of(p -> view.dynamic(p, (elem, model) -> elem.text(String.valueOf(model.size()))))
+                    .__()
+                .__()
+            .__());
+    }
+
+    public static DynamicHtml<List<String>> sectionsView() {
+        return sectionsView(new AtomicInteger());
+    }
+}
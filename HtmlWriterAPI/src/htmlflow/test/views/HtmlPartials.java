@@ -0,0 +1,61 @@
+package htmlflow.test.views;
+
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlView;
+import htmlflow.StaticHtml;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Views composed of partial views, shared by the tests of partials
+ * written into the output of their parent.
+ */
+public class HtmlPartials {
+
+    public static final StaticHtml FOOTER = StaticHtml.view(v -> v.div().text("Footer").__());
+
+    public static final DynamicHtml<String> ROW = DynamicHtml.view((view, item) -> view
+        .tr()
+            .td().dynamic(td -> td.text(item)).__()
+        .__());
+
+    /**
+     * A table with a ROW partial per item in a dynamic block, followed by
+     * the FOOTER partial in a static block.
+     */
+    public static DynamicHtml<List<String>> tableView() {
+        return DynamicHtml.view((view, items) -> view
+            .div()
+                .table()
+                    .dynamic(table -> items.forEach(item -> view.addPartial(ROW, item)))
+                .__()
+                .of(div -> view.addPartial(FOOTER))
+            .__());
+    }
+
+    /**
+     * A thread-safe row, which may be rendered in parallel by parallelTableView.
+     */
+    public static HtmlView<String> threadSafeRowView() {
+        return DynamicHtml.<String>view((view, row) -> view
+            .tr()
+                .td().of(td -> view.dynamic(td, (elem, model) -> elem.text(model))).__()
+            .__()).threadSafe();
+    }
+
+    /**
+     * A table whose rows are rendered in parallel on the given pool, in
+     * chunks of threshold rows.
+     */
+    public static DynamicHtml<List<String>> parallelTableView(HtmlView<String> row, int threshold, ForkJoinPool pool) {
+        return DynamicHtml.view((view, rows) -> view
+            .div()
+                .table()
+                    .tbody()
+                        .of(tbody -> view.dynamic(tbody, (elem, model) -> view.addPartials(row, model, threshold, pool)))
+                    .__()
+                .__()
+            .__());
+    }
+}
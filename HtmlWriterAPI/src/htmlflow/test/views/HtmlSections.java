@@ -0,0 +1,57 @@
+package htmlflow.test.views;
+
+import htmlflow.DynamicHtml;
+import htmlflow.HtmlView;
+
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Pages with a sidebar and a main section, either rendered as independent
+ * sections on an executor, or as sequential sections with the same HTML.
+ */
+public class HtmlSections {
+
+    public static HtmlView<String> textView() {
+        return DynamicHtml.<String>view((view, text) -> view
+            .div()
+                .of(div -> view.dynamic(div, (elem, model) -> elem.text(model)))
+            .__()).threadSafe();
+    }
+
+    /**
+     * The sidebar and main sections are the text of the given functions of
+     * the page, each rendered independently on the given executor.
+     */
+    public static DynamicHtml<String> pageView(
+        Function<String, String> sidebar,
+        Function<String, String> main,
+        Executor pool)
+    {
+        HtmlView<String> partial = textView();
+        return DynamicHtml.view((view, page) -> view
+            .div()
+                .div().attrId("sidebar")
+                    .of(div -> view.dynamic(div, partial, sidebar, pool))
+                .__()
+                .div().attrId("main")
+                    .of(div -> view.dynamic(div, partial, main, pool))
+                .__()
+            .__());
+    }
+
+    /**
+     * The same HTML of pageView with prefixes "sidebar " and "main ".
+     */
+    public static DynamicHtml<String> sequentialView() {
+        return DynamicHtml.view((view, page) -> view
+            .div()
+                .div().attrId("sidebar")
+                    .of(div -> view.dynamic(div, (elem, model) -> elem.div().text("sidebar " + model).__()))
+                .__()
+                .div().attrId("main")
+                    .of(div -> view.dynamic(div, (elem, model) -> elem.div().text("main " + model).__()))
+                .__()
+            .__());
+    }
+}
@@ -2,6 +2,8 @@ package htmlflow.util;
 
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 
 public class PrintStringBuilder extends PrintStream{
 
@@ -11,6 +13,14 @@ public class PrintStringBuilder extends PrintStream{
         super(out);
     }
 
+    /**
+     * Encodes the printed chars with charset, rather than with the default
+     * charset of the platform, before writing them to out.
+     */
+    public PrintStringBuilder(OutputStream out, Charset charset) throws UnsupportedEncodingException {
+        super(out, false, charset.name());
+    }
+
     @Override
     public void print(char c) {
         super.print(c);